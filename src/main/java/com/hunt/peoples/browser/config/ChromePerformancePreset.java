@@ -0,0 +1,59 @@
+package com.hunt.peoples.browser.config;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Наборы флагов Chrome под плотность размещения браузеров на хосте.
+ * Выбираются в профиле (profiles.chrome_preset) или глобально (browser.chrome.performance-preset)
+ * и попадают в EXTRA_CHROME_ARGS при старте контейнера.
+ */
+public enum ChromePerformancePreset {
+
+    /** Максимум браузеров на хост: мало renderer-процессов, маленькие кэши, без фоновой сети */
+    DENSE(List.of(
+            "--renderer-process-limit=2",
+            "--disk-cache-size=33554432",
+            "--media-cache-size=8388608",
+            "--disable-background-networking",
+            "--disable-component-update",
+            "--disable-default-apps",
+            "--disable-features=Translate,OptimizationHints,MediaRouter"
+    )),
+
+    /** Компромисс для обычной работы через VNC/CDP */
+    BALANCED(List.of(
+            "--renderer-process-limit=4",
+            "--disk-cache-size=104857600",
+            "--media-cache-size=33554432",
+            "--disable-component-update"
+    )),
+
+    /** Отзывчивость важнее плотности: фоновые вкладки не троттлятся */
+    INTERACTIVE(List.of(
+            "--disk-cache-size=268435456",
+            "--disable-background-timer-throttling",
+            "--disable-renderer-backgrounding",
+            "--disable-backgrounding-occluded-windows"
+    ));
+
+    private final List<String> chromeArgs;
+
+    ChromePerformancePreset(List<String> chromeArgs) {
+        this.chromeArgs = chromeArgs;
+    }
+
+    public List<String> getChromeArgs() {
+        return chromeArgs;
+    }
+
+    /** null, если имя пустое или неизвестное */
+    public static ChromePerformancePreset fromName(String name) {
+        if (name == null || name.isBlank()) return null;
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
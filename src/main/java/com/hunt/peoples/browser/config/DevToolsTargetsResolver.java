@@ -2,14 +2,11 @@ package com.hunt.peoples.browser.config;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
-
-
-import java.time.Duration;
 
 @Slf4j
 @Component
@@ -17,12 +14,9 @@ public class DevToolsTargetsResolver {
 
     private final RestTemplate rt;
 
-    public DevToolsTargetsResolver() {
-        this.rt = buildRestTemplate(Duration.ofSeconds(2), Duration.ofSeconds(2));
-    }
-
-    public DevToolsTargetsResolver(Duration connectTimeout, Duration readTimeout) {
-        this.rt = buildRestTemplate(connectTimeout, readTimeout);
+    /** RestTemplate поверх общего пула соединений (см. HttpClientConfig) */
+    public DevToolsTargetsResolver(@Qualifier("devToolsRestTemplate") RestTemplate rt) {
+        this.rt = rt;
     }
 
     /** ws://.../devtools/browser/... */
@@ -98,15 +92,6 @@ public class DevToolsTargetsResolver {
         JsonNode v = n.get(field);
         return (v != null && !v.isNull()) ? v.asText() : null;
     }
-
-    private RestTemplate buildRestTemplate(Duration connectTimeout, Duration readTimeout) {
-        SimpleClientHttpRequestFactory f = new SimpleClientHttpRequestFactory();
-        f.setConnectTimeout((int) connectTimeout.toMillis());
-        f.setReadTimeout((int) readTimeout.toMillis());
-        RestTemplate rt = new RestTemplate();
-        rt.setRequestFactory(f);
-        return rt;
-    }
 }
 
 
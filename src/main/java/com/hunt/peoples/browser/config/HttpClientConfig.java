@@ -0,0 +1,102 @@
+package com.hunt.peoples.browser.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+/**
+ * Один пул HTTP-соединений на всё приложение (DevTools /json/*, ip-api.com и т.п.).
+ * Keep-alive, лимиты на маршрут и жёсткие таймауты — зависший HTTP-вызов
+ * больше не держит поток старта браузера. Метрики пула: httpcomponents.httpclient.pool.*
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${http.client.max-total:200}")
+    private int maxTotal;
+
+    @Value("${http.client.max-per-route:20}")
+    private int maxPerRoute;
+
+    @Value("${http.client.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${http.client.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Value("${http.client.pool-acquire-timeout-ms:2000}")
+    private long poolAcquireTimeoutMs;
+
+    @Value("${http.client.idle-evict-ms:30000}")
+    private long idleEvictMs;
+
+    // DevTools живёт на localhost-портах контейнера: отвечает быстро или не отвечает вовсе
+    @Value("${http.client.devtools-read-timeout-ms:2000}")
+    private long devToolsReadTimeoutMs;
+
+    @Bean
+    public PoolingHttpClientConnectionManager httpConnectionManager(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager cm = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+                        .build())
+                .build();
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(cm, "shared").bindTo(meterRegistry);
+        return cm;
+    }
+
+    @Bean
+    public CloseableHttpClient sharedHttpClient(PoolingHttpClientConnectionManager httpConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(httpConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolAcquireTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictMs))
+                .build();
+    }
+
+    /** Общий RestTemplate (geo-запросы, health-проверки DevTools из сервисов) */
+    @Bean
+    @Primary
+    public RestTemplate restTemplate(CloseableHttpClient sharedHttpClient) {
+        return new RestTemplate(requestFactory(sharedHttpClient, Duration.ofMillis(readTimeoutMs)));
+    }
+
+    /** Тот же пул, но с коротким read-timeout для /json/version и /json/list */
+    @Bean
+    @Qualifier("devToolsRestTemplate")
+    public RestTemplate devToolsRestTemplate(CloseableHttpClient sharedHttpClient) {
+        return new RestTemplate(requestFactory(sharedHttpClient, Duration.ofMillis(devToolsReadTimeoutMs)));
+    }
+
+    private HttpComponentsClientHttpRequestFactory requestFactory(CloseableHttpClient client, Duration readTimeout) {
+        HttpComponentsClientHttpRequestFactory f = new HttpComponentsClientHttpRequestFactory(client);
+        f.setConnectionRequestTimeout(Duration.ofMillis(poolAcquireTimeoutMs));
+        f.setReadTimeout(readTimeout);
+        return f;
+    }
+}
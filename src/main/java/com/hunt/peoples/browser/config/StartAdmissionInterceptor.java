@@ -0,0 +1,45 @@
+package com.hunt.peoples.browser.config;
+
+import com.hunt.peoples.browser.service.StartAdmissionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Входной допуск для эндпоинтов запуска браузера: клиент или тенант сверх своей скорости
+ * сразу получает 429 с Retry-After. Слоты запуска и места под контейнеры проверяет
+ * StartAdmissionService.withStartSlot вокруг самого startBrowser — подключение к уже
+ * запущенному браузеру их не занимает.
+ *
+ * Клиент — X-Client-Id (иначе адрес), тенант — X-Tenant-Id (необязателен).
+ */
+@Component
+@RequiredArgsConstructor
+public class StartAdmissionInterceptor implements HandlerInterceptor {
+
+    public static final String CLIENT_HEADER = "X-Client-Id";
+    public static final String TENANT_HEADER = "X-Tenant-Id";
+
+    private final StartAdmissionService admissionService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"POST".equals(request.getMethod())) return true;
+
+        String clientId = request.getHeader(CLIENT_HEADER);
+        if (clientId == null || clientId.isBlank()) clientId = request.getRemoteAddr();
+
+        StartAdmissionService.Decision decision = admissionService.tryAdmit(clientId, request.getHeader(TENANT_HEADER));
+        if (!decision.admitted()) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()));
+            response.setHeader("X-Error", "Start rejected: " + decision.reason());
+            return false;
+        }
+        return true;
+    }
+}
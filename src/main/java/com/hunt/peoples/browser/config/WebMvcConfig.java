@@ -0,0 +1,20 @@
+package com.hunt.peoples.browser.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final StartAdmissionInterceptor startAdmissionInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // эндпоинты, которые запускают контейнеры
+        registry.addInterceptor(startAdmissionInterceptor)
+                .addPathPatterns("/integration/profiles/connect", "/api/profiles/*/start", "/api/profiles/batch-start");
+    }
+}
@@ -1,5 +1,7 @@
 package com.hunt.peoples.browser.config;
 
+import com.hunt.peoples.profiles.controller.ProfileEventsWebSocketHandler;
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
@@ -7,11 +9,14 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 
 @Configuration
 @EnableWebSocket
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketConfigurer {
 
+    private final ProfileEventsWebSocketHandler profileEventsHandler;
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        // Мы используем WebSocket как клиент, а не сервер
-        // Поэтому регистрация не требуется для нашего использования
+        // К DevTools браузеров ходим как клиент; сервером WebSocket служит только поток событий профилей
+        registry.addHandler(profileEventsHandler, "/ws/profiles/events");
     }
-}
\ No newline at end of file
+}
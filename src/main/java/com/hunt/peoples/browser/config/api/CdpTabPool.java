@@ -0,0 +1,290 @@
+package com.hunt.peoples.browser.config.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.hunt.peoples.browser.config.ChromePerformancePreset;
+import com.hunt.peoples.browser.config.DevToolsSession;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Пул переиспользуемых вкладок на каждый браузер (ключ — devToolsBaseUrl).
+ *
+ * acquire() отдаёт уже подключённую вкладку (page WS открыт, Runtime/Network/Page включены),
+ * так что повторная задача стоит одну навигацию вместо createTarget + WS connect + enable доменов.
+ * TabHandle.close() возвращает вкладку в пул: sessionStorage чистится, вкладка уходит на about:blank,
+ * для посещённого origin вызывается Storage.clearDataForOrigin (cookies по умолчанию НЕ трогаем — это сессия профиля).
+ *
+ * BrowserContainerService регистрирует браузер после старта: размер пула по пресету и инициализатор
+ * новой вкладки (полифиллы, прокси-авторизация, эмуляция) — иначе вкладка из пула выдавала бы реальный отпечаток.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CdpTabPool {
+
+    private static final String BLANK = "about:blank";
+
+    private final CdpTabs tabs;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${browser.cdp.tab-pool.enabled:true}")
+    private boolean enabled;
+
+    @Value("${browser.cdp.tab-pool.max-idle-per-browser:4}")
+    private int defaultMaxIdle;
+
+    // DENSE-браузеры держат меньше свободных вкладок: каждая — renderer-процесс
+    @Value("${browser.cdp.tab-pool.max-idle-per-browser.dense:1}")
+    private int denseMaxIdle;
+
+    @Value("${browser.cdp.tab-pool.idle-ttl-ms:300000}")
+    private long idleTtlMs;
+
+    @Value("${browser.cdp.tab-pool.reset-timeout-ms:3000}")
+    private long resetTimeoutMs;
+
+    @Value("${browser.cdp.tab-pool.clear-storage-types:local_storage,indexeddb,cache_storage,service_workers,websql}")
+    private String clearStorageTypes;
+
+    private final ConcurrentHashMap<String, BrowserPool> pools = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cdp-tab-pool-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Counter reusedCounter;
+    private Counter createdCounter;
+    private Timer acquireTimer;
+
+    @PostConstruct
+    public void init() {
+        reusedCounter = meterRegistry.counter("cdp.tab_pool.acquire", "result", "reused");
+        createdCounter = meterRegistry.counter("cdp.tab_pool.acquire", "result", "created");
+        acquireTimer = meterRegistry.timer("cdp.tab_pool.acquire.time");
+        Gauge.builder("cdp.tab_pool.idle", pools, m -> m.values().stream().mapToInt(p -> p.idle.size()).sum())
+                .register(meterRegistry);
+        Gauge.builder("cdp.tab_pool.leased", pools, m -> m.values().stream().mapToInt(p -> p.leased.size()).sum())
+                .register(meterRegistry);
+
+        long period = Math.max(10_000, idleTtlMs / 2);
+        sweeper.scheduleWithFixedDelay(this::evictExpired, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Выдать вкладку браузера и (если url не about:blank) отправить её на url.
+     * Закрытие TabHandle возвращает вкладку в пул.
+     */
+    public TabHandle acquire(String devToolsBaseUrl, String url) {
+        String target = (url == null || url.isBlank()) ? BLANK : url;
+        if (!enabled) {
+            return tabs.openTabAndConnect(devToolsBaseUrl, target);
+        }
+
+        long started = System.nanoTime();
+        try {
+            BrowserPool pool = poolFor(devToolsBaseUrl);
+
+            IdleTab idle;
+            while ((idle = pool.idle.pollFirst()) != null) {
+                TabHandle tab = idle.tab();
+                if (isExpired(idle)) {
+                    evict(tab, "expired");
+                    continue;
+                }
+                if (!BLANK.equals(target) && !navigate(tab, target)) {
+                    evict(tab, "dead");
+                    continue;
+                }
+                pool.leased.add(tab);
+                reusedCounter.increment();
+                return tab;
+            }
+
+            TabHandle tab = openTab(pool, devToolsBaseUrl, target);
+            pool.leased.add(tab);
+            createdCounter.increment();
+            return tab;
+
+        } finally {
+            acquireTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Зарегистрировать запущенный браузер: размер пула по пресету (DENSE — max-idle-per-browser.dense)
+     * и инициализатор, который применяется к каждой новой вкладке до первой навигации.
+     */
+    public void registerBrowser(String devToolsBaseUrl, ChromePerformancePreset preset,
+                                Consumer<DevToolsSession> tabInitializer) {
+        BrowserPool pool = poolFor(devToolsBaseUrl);
+        pool.maxIdle = Math.max(0, preset == ChromePerformancePreset.DENSE ? denseMaxIdle : defaultMaxIdle);
+        pool.initializer = tabInitializer;
+        trim(pool);
+    }
+
+    private TabHandle openTab(BrowserPool pool, String devToolsBaseUrl, String target) {
+        Consumer<DevToolsSession> initializer = pool.initializer;
+        if (initializer == null) {
+            return tabs.openTabAndConnect(devToolsBaseUrl, target, this::release);
+        }
+        // about:blank → инициализатор → навигация: скрипты отпечатка должны успеть до первого документа
+        TabHandle tab = tabs.openTabAndConnect(devToolsBaseUrl, BLANK, this::release);
+        try {
+            initializer.accept(tab.getPage());
+        } catch (RuntimeException e) {
+            tab.destroy();
+            throw e;
+        }
+        if (!BLANK.equals(target) && !navigate(tab, target)) {
+            tab.destroy();
+            throw new IllegalStateException("Cannot navigate new tab to " + target);
+        }
+        return tab;
+    }
+
+    /** Закрыть все свободные вкладки браузера и забыть его (вызывается при остановке контейнера) */
+    public void evictBrowser(String devToolsBaseUrl) {
+        BrowserPool pool = pools.remove(devToolsBaseUrl);
+        if (pool == null) return;
+
+        IdleTab idle;
+        while ((idle = pool.idle.pollFirst()) != null) {
+            evict(idle.tab(), "browser_closed");
+        }
+        // выданные вкладки закроются при close(): ни в одном пуле их нет
+        pool.leased.clear();
+        log.debug("Tab pool evicted for {}", devToolsBaseUrl);
+    }
+
+    private void release(TabHandle tab) {
+        BrowserPool pool = pools.get(tab.getDevToolsBaseUrl());
+        if (pool == null) {
+            tab.destroy();
+            return;
+        }
+        if (!pool.leased.remove(tab)) {
+            // двойной close() вкладки, уже вернувшейся в пул, — игнорируем
+            if (pool.idle.stream().anyMatch(idle -> idle.tab() == tab)) return;
+            // вкладка старого пула (браузер вытеснен и пул создан заново) — закрываем
+            evict(tab, "orphaned");
+            return;
+        }
+
+        if (!reset(tab)) {
+            evict(tab, "reset_failed");
+            return;
+        }
+
+        synchronized (pool) {
+            if (pool.idle.size() < pool.maxIdle) {
+                pool.idle.offerFirst(new IdleTab(tab, System.currentTimeMillis()));
+                return;
+            }
+        }
+        evict(tab, "overflow");
+    }
+
+    private boolean reset(TabHandle tab) {
+        DevToolsSession page = tab.getPage();
+        try {
+            JsonNode resp = page.evaluate(
+                    "(function(){try{sessionStorage.clear();}catch(e){}return location.origin;})()",
+                    resetTimeoutMs);
+            String origin = resp.path("result").path("result").path("value").asText("");
+
+            page.send("Page.navigate", Map.of("url", BLANK), resetTimeoutMs);
+
+            if (origin.startsWith("http") && clearStorageTypes != null && !clearStorageTypes.isBlank()) {
+                page.safeSend("Storage.clearDataForOrigin", Map.of(
+                        "origin", origin,
+                        "storageTypes", clearStorageTypes
+                ), resetTimeoutMs);
+            }
+            return true;
+        } catch (Exception e) {
+            log.debug("Tab reset failed (target={}): {}", tab.getTargetId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean navigate(TabHandle tab, String url) {
+        try {
+            tab.getPage().send("Page.navigate", Map.of("url", url), resetTimeoutMs);
+            return true;
+        } catch (Exception e) {
+            log.debug("Pooled tab navigate failed (target={}): {}", tab.getTargetId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void evictExpired() {
+        try {
+            for (BrowserPool pool : pools.values()) {
+                for (IdleTab idle : pool.idle) {
+                    // remove() == true только если вкладку не забрал параллельный acquire()
+                    if (isExpired(idle) && pool.idle.remove(idle)) {
+                        evict(idle.tab(), "expired");
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Tab pool sweep failed: {}", e.getMessage());
+        }
+    }
+
+    private void trim(BrowserPool pool) {
+        while (pool.idle.size() > pool.maxIdle) {
+            IdleTab idle = pool.idle.pollLast();
+            if (idle == null) break;
+            evict(idle.tab(), "overflow");
+        }
+    }
+
+    private boolean isExpired(IdleTab idle) {
+        return System.currentTimeMillis() - idle.idleSince() > idleTtlMs;
+    }
+
+    private void evict(TabHandle tab, String reason) {
+        meterRegistry.counter("cdp.tab_pool.evicted", "reason", reason).increment();
+        tab.destroy();
+    }
+
+    private BrowserPool poolFor(String devToolsBaseUrl) {
+        return pools.computeIfAbsent(devToolsBaseUrl, k -> new BrowserPool(defaultMaxIdle));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+        pools.keySet().forEach(this::evictBrowser);
+    }
+
+    private record IdleTab(TabHandle tab, long idleSince) {}
+
+    private static final class BrowserPool {
+        // LIFO: самая "тёплая" вкладка отдаётся первой
+        private final ConcurrentLinkedDeque<IdleTab> idle = new ConcurrentLinkedDeque<>();
+        private final Set<TabHandle> leased = ConcurrentHashMap.newKeySet();
+        private volatile int maxIdle;
+        private volatile Consumer<DevToolsSession> initializer;
+
+        private BrowserPool(int maxIdle) {
+            this.maxIdle = maxIdle;
+        }
+    }
+}
@@ -7,6 +7,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.function.Consumer;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -17,6 +19,14 @@ public class CdpTabs {
     private final DevToolsTargetsResolver resolver;
 
     public TabHandle openTabAndConnect(String devToolsBaseUrl, String url) {
+        return openTabAndConnect(devToolsBaseUrl, url, null);
+    }
+
+    /**
+     * @param onClose что делать на TabHandle.close() (например, вернуть вкладку в CdpTabPool);
+     *                null — обычное закрытие вкладки
+     */
+    public TabHandle openTabAndConnect(String devToolsBaseUrl, String url, Consumer<TabHandle> onClose) {
         CdpBrowserApi.TabInfo tab = browserApi.openTab(devToolsBaseUrl, url);
 
         String pageWs = tab.getPageWsUrl();
@@ -30,7 +40,7 @@ public class CdpTabs {
         DevToolsSession page = devToolsClient.connect(pageWs);
         page.enableCommonDomains(3000);
 
-        return new TabHandle(devToolsBaseUrl, tab.getTargetId(), pageWs, page, browserApi);
+        return new TabHandle(devToolsBaseUrl, tab.getTargetId(), pageWs, page, browserApi, onClose);
     }
 
     private String waitPageWs(String devToolsBaseUrl, String targetId, long waitMs) {
@@ -2,11 +2,15 @@ package com.hunt.peoples.browser.config.api;
 
 import com.hunt.peoples.browser.config.DevToolsSession;
 import lombok.Getter;
+
+import java.util.function.Consumer;
+
 //TabHandle хранит:
 //targetId pageWsUrl//уже открытую DevToolsSession page
 //close() делает:
 //закрывает page WS
 //закрывает вкладку через browser target (Target.closeTarget)
+//если вкладка выдана из CdpTabPool — close() возвращает её в пул, а destroy() закрывает по-настоящему
 @Getter
 public class TabHandle implements AutoCloseable {
 
@@ -15,19 +19,34 @@ public class TabHandle implements AutoCloseable {
     private final String pageWsUrl;
     private final DevToolsSession page;
     private final CdpBrowserApi browserApi;
+    private final Consumer<TabHandle> onClose;
 
     public TabHandle(String devToolsBaseUrl, String targetId, String pageWsUrl, DevToolsSession page, CdpBrowserApi browserApi) {
+        this(devToolsBaseUrl, targetId, pageWsUrl, page, browserApi, null);
+    }
+
+    public TabHandle(String devToolsBaseUrl, String targetId, String pageWsUrl, DevToolsSession page,
+                     CdpBrowserApi browserApi, Consumer<TabHandle> onClose) {
         this.devToolsBaseUrl = devToolsBaseUrl;
         this.targetId = targetId;
         this.pageWsUrl = pageWsUrl;
         this.page = page;
         this.browserApi = browserApi;
+        this.onClose = onClose;
     }
 
     @Override
     public void close() {
+        if (onClose != null) {
+            onClose.accept(this);
+            return;
+        }
+        destroy();
+    }
+
+    /** Закрывает page WS и саму вкладку, минуя пул */
+    public void destroy() {
         try { if (page != null) page.close(); } catch (Exception ignore) {}
         try { browserApi.closeTab(devToolsBaseUrl, targetId); } catch (Exception ignore) {}
     }
 }
-
@@ -0,0 +1,19 @@
+package com.hunt.peoples.browser.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCreateProfilesRequest {
+    @NotEmpty(message = "profiles cannot be empty")
+    private List<@Valid CreateProfileRequest> profiles;
+}
@@ -0,0 +1,25 @@
+package com.hunt.peoples.browser.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCreateProfilesResponse {
+    private Integer requested;
+    private Integer createdCount;
+    // externalKey -> id созданного профиля
+    private Map<String, Long> created;
+    // ключи, которые уже существуют (или повторяются в запросе) — пропущены
+    private List<String> skippedExternalKeys;
+    private Long durationMs;
+    private Instant completedAt;
+}
@@ -0,0 +1,18 @@
+package com.hunt.peoples.browser.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusRequest {
+    // можно указать и то, и другое; нужно хотя бы одно
+    private List<Long> profileIds;
+    private List<String> externalKeys;
+}
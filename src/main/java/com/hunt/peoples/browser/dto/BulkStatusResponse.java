@@ -0,0 +1,19 @@
+package com.hunt.peoples.browser.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusResponse {
+    // в порядке запроса: сначала profileIds, затем externalKeys (без повторов)
+    private List<ProfileStatusResponse> profiles;
+    private List<Long> notFoundIds;
+    private List<String> notFoundExternalKeys;
+}
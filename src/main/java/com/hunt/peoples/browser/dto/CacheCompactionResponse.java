@@ -0,0 +1,21 @@
+package com.hunt.peoples.browser.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class CacheCompactionResponse {
+    // SCHEDULED / HIGH_WATER / MANUAL
+    private String trigger;
+    private int profilesScanned;
+    private int profilesTrimmed;
+    private long filesDeleted;
+    private long bytesReclaimed;
+    private String reclaimedHuman;
+    private long quotaBytes;
+    private Instant startedAt;
+    private long durationMs;
+}
@@ -0,0 +1,25 @@
+package com.hunt.peoples.browser.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class CleanupJobResponse {
+    // RUNNING / COMPLETED / CANCELLED / FAILED
+    private String state;
+    private int daysThreshold;
+    private long candidates;
+    private long deletedCount;
+    // захвачены или использованы между выборкой и удалением
+    private long skippedCount;
+    private long directoriesDeleted;
+    private long directoryFailures;
+    private double profilesPerSecond;
+    private boolean cancelRequested;
+    private String error;
+    private Instant startedAt;
+    private Instant finishedAt;
+}
@@ -18,6 +18,7 @@ public class ContainerInfo {
     private int hostVncPort;
     private int hostDevToolsPort;
     private Instant startedAt;
+    private String performancePreset;
 
     public Duration getUptime() {
         return startedAt == null ? Duration.ZERO : Duration.between(startedAt, Instant.now());
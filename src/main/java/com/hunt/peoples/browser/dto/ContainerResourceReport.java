@@ -0,0 +1,19 @@
+package com.hunt.peoples.browser.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+public class ContainerResourceReport {
+    private int totalContainers;
+    private List<ContainerResourceUsage> containers;
+    private Map<String, Long> containersByPreset;
+    private Map<String, Double> avgRssMbByPreset;
+    private Map<String, Double> avgCpuPercentByPreset;
+    private Instant sampledAt;
+}
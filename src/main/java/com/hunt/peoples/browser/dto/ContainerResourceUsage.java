@@ -0,0 +1,18 @@
+package com.hunt.peoples.browser.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ContainerResourceUsage {
+    private Long profileId;
+    private String containerId;
+    private String performancePreset;
+    private long rssBytes;
+    private long memoryUsageBytes;
+    private long memoryLimitBytes;
+    private double cpuPercent;
+    private long uptimeSeconds;
+    private String error;
+}
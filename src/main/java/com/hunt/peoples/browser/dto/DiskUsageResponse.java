@@ -3,6 +3,8 @@ package com.hunt.peoples.browser.dto;
 import lombok.Builder;
 import lombok.Data;
 
+import java.time.Instant;
+
 @Data
 @Builder
 public class DiskUsageResponse {
@@ -10,6 +12,9 @@ public class DiskUsageResponse {
     private String externalKey;
     private long sizeBytes;
     private String sizeHuman;
+    private long fileCount;
     private boolean directoryExists;
+    // когда размер был посчитан (учёт фоновый)
+    private Instant scannedAt;
     private String error;
 }
\ No newline at end of file
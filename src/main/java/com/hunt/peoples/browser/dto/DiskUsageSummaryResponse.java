@@ -0,0 +1,19 @@
+package com.hunt.peoples.browser.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+public class DiskUsageSummaryResponse {
+    private long totalBytes;
+    private String totalHuman;
+    private long totalFiles;
+    private int profileCount;
+    private Instant lastFullScanAt;
+    // самые большие профили (top N)
+    private List<DiskUsageResponse> largest;
+}
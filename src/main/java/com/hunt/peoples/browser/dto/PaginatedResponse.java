@@ -23,4 +23,9 @@ public class PaginatedResponse<T> {
     private boolean first;
     private boolean empty;
     private int numberOfElements;
+
+    // keyset-режим: курсоры вместо номеров страниц, totalElements — только по запросу (approxTotal)
+    private String nextCursor;
+    private String prevCursor;
+    private Boolean approximateTotal;
 }
\ No newline at end of file
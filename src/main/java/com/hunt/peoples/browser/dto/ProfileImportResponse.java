@@ -0,0 +1,18 @@
+package com.hunt.peoples.browser.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ProfileImportResponse {
+    private String importId;
+    // INCOMPLETE / IMPORTED
+    private String state;
+    private Long profileId;
+    private String externalKey;
+    private int filesReceived;
+    // продолжить: GET /{id}/export?after=lastEntry -> POST /import?importId=...
+    private String lastEntry;
+    private String error;
+}
@@ -0,0 +1,18 @@
+package com.hunt.peoples.browser.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileLeaseResponse {
+    private Long profileId;
+    private String holder;
+    private Instant expiresAt;
+}
@@ -1,5 +1,6 @@
 package com.hunt.peoples.browser.dto;
 
+import jakarta.validation.constraints.Pattern;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,4 +14,7 @@ public class UpdateProfileRequest {
     private String name;
     private String proxyUrl;
     private String status;
+
+    @Pattern(regexp = "(?i)DENSE|BALANCED|INTERACTIVE", message = "Invalid chrome preset")
+    private String chromePreset;
 }
@@ -5,19 +5,34 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.command.CreateContainerResponse;
 import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.core.InvocationBuilder;
 import com.github.dockerjava.api.model.*;
 import com.hunt.peoples.browser.config.AppProperties;
+import com.hunt.peoples.browser.config.ChromePerformancePreset;
 import com.hunt.peoples.browser.config.DevToolsClient;
+import com.hunt.peoples.browser.config.api.CdpTabPool;
+import com.hunt.peoples.browser.config.api.TabHandle;
 import com.hunt.peoples.browser.dto.BrowserStartResult;
 import com.hunt.peoples.browser.dto.ContainerInfo;
+import com.hunt.peoples.browser.dto.ContainerResourceReport;
+import com.hunt.peoples.browser.dto.ContainerResourceUsage;
 import com.hunt.peoples.profiles.entity.Profile;
 import com.hunt.peoples.profiles.repository.ProfileRepository;
+import com.hunt.peoples.profiles.service.ProfileArchiveService;
+import com.hunt.peoples.profiles.service.ProfileCache;
+import com.hunt.peoples.profiles.service.ProfileCookieStore;
+import com.hunt.peoples.profiles.service.ProfileDiskUsageService;
+import com.hunt.peoples.profiles.service.ProfileLifecycleEvent;
+import com.hunt.peoples.profiles.service.ProfileStatusWriter;
+import com.hunt.peoples.profiles.service.ProfileTemplateService;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import com.hunt.peoples.browser.config.DevToolsSession;
@@ -56,12 +71,20 @@ public class BrowserContainerService {
 
     private final DockerClient dockerClient;
     private final AppProperties appProperties;
-    private final ProfileRepository profileRepository;
+    private final ProfileStatusWriter profileStatusWriter;
+    private final ProfileCache profileCache;
+    private final ProfileDiskUsageService diskUsageService;
+    private final ProfileArchiveService archiveService;
+    private final ProfileTemplateService templateService;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
     private final ObjectMapper objectMapper;
     private final DevToolsClient devToolsClient;
     private final ProfileRepository profilesRepository;
     private final BrowserWarmUpService warmUpService;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final CdpTabPool tabPool;
+    private final RestTemplate restTemplate;
+    private final ProfileCookieStore cookieStore;
 
     private static final String IMAGE_NAME = "multi-browser-chrome-vnc";
     private static final int VNC_CONTAINER_PORT = 6080;      // noVNC из start.sh
@@ -69,7 +92,10 @@ public class BrowserContainerService {
 
 
     private static final Map<Long, ContainerInfo> ACTIVE_CONTAINERS = new ConcurrentHashMap<>();
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    // запуски, прошедшие checkContainerLimit, чей контейнер ещё не в ACTIVE_CONTAINERS
+    private static final Set<Long> PENDING_STARTS = ConcurrentHashMap.newKeySet();
+    // spring.threads.virtual.enabled=true — задачи (прогрев и т.п.) на виртуальных потоках
+    private ExecutorService executorService;
     private final ConcurrentHashMap<Long, ReentrantLock> STOP_LOCKS = new ConcurrentHashMap<>();
 
 
@@ -97,12 +123,45 @@ public class BrowserContainerService {
     @Value("${browser.container.max-containers:50}")
     private int maxContainers;
 
+    // DENSE / BALANCED / INTERACTIVE; пусто — без пресета (профиль может задать свой chromePreset)
+    @Value("${browser.chrome.performance-preset:}")
+    private String defaultPerformancePreset;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
     @PostConstruct
     public void init() {
-        log.info("BrowserContainerService initialized. Ready to inject full fingerprints.");
+        executorService = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("browser-task-", 0).factory())
+                : Executors.newCachedThreadPool();
+        archiveService.setContainerRegistry(ACTIVE_CONTAINERS::containsKey);
+        log.info("BrowserContainerService initialized (virtual threads: {}). Ready to inject full fingerprints.",
+                virtualThreads);
     }
 
     public BrowserStartResult startBrowser(Profile profile, String proxyOverride) {
+        eventPublisher.publishEvent(ProfileLifecycleEvent.of(
+                ProfileLifecycleEvent.BROWSER_STARTING, profile.getId(), "STARTING"));
+        try {
+            BrowserStartResult result = doStartBrowser(profile, proxyOverride);
+            eventPublisher.publishEvent(ProfileLifecycleEvent.of(
+                    ProfileLifecycleEvent.BROWSER_READY, profile.getId(), "READY")
+                    .withDetails(Map.of(
+                            "vncUrl", String.valueOf(result.vncUrl()),
+                            "devToolsUrl", String.valueOf(result.devToolsUrl()))));
+            return result;
+        } catch (RuntimeException e) {
+            eventPublisher.publishEvent(ProfileLifecycleEvent.of(
+                    ProfileLifecycleEvent.BROWSER_FAILED, profile.getId(), "FAILED")
+                    .withDetails(Map.of("error", String.valueOf(e.getMessage()))));
+            throw e;
+        } finally {
+            PENDING_STARTS.remove(profile.getId());
+        }
+    }
+
+    private BrowserStartResult doStartBrowser(Profile profile, String proxyOverride) {
         String effectiveProxy = resolveProxy(proxyOverride, profile.getProxyUrl());
 
         // Авто-подбор часового пояса и локали по прокси
@@ -122,7 +181,7 @@ public class BrowserContainerService {
 
         log.info("=== START BROWSER DEEP === profileId={} key={}", profileId, externalKey);
 
-        checkContainerLimit();
+        checkContainerLimit(profileId);
 
         if (ACTIVE_CONTAINERS.containsKey(profileId)) {
             // В продакшене лучше проверить, жив ли контейнер, но пока так:
@@ -137,58 +196,86 @@ public class BrowserContainerService {
 
         // 1. Настройка Docker Config
 
-        // Создаем папку
-        if (profile.getUserDataPath() == null || profile.getUserDataPath().isEmpty()) {
-            // Формируем путь: profiles/profile_29
-            String newPath = "profiles/profile_" + profileId;
-            profile.setUserDataPath(newPath);
-            // Сохраняем в БД, чтобы путь закрепился за профилем
-            profilesRepository.save(profile);
-        }
+        // restore -> seed -> bind -> регистрация контейнера под той же блокировкой профиля, что и
+        // архивация: архиватор не упакует и не удалит директорию, которую сейчас монтируют
+        ReentrantLock dirLock = archiveService.profileLock(profileId);
+        dirLock.lock();
+        boolean isNewProfile;
+        String startKind;
+        String containerId;
+        long readyStarted;
+        try {
+            // Создаем папку
+            if (profile.getUserDataPath() == null || profile.getUserDataPath().isEmpty()) {
+                // Формируем путь: profiles/profile_29
+                String newPath = "profiles/profile_" + profileId;
+                profile.setUserDataPath(newPath);
+                // Сохраняем в БД, чтобы путь закрепился за профилем
+                profilesRepository.save(profile);
+                profileCache.invalidate(profileId);
+            }
+
+            // Холодный профиль — распаковываем архив до bind'а тома
+            archiveService.restoreIfArchived(profileId, profile.getUserDataPath());
 
 // Теперь безопасно создаем папку на диске
-        File profileDir = new File(profile.getUserDataPath());
-        if (!profileDir.exists()) {
-            profileDir.mkdirs();
-            log.info("📂 Created new physical directory for profile: {}", profileDir.getAbsolutePath());
-        }
+            File profileDir = new File(profile.getUserDataPath());
+
+            // Новый профиль (Default ещё нет) — смотрим до сидирования и до старта Chrome
+            isNewProfile = !new File(profileDir, "Default").exists();
+            startKind = "existing";
+            if (isNewProfile) {
+                startKind = templateService.seed(profileDir.toPath()) ? "new_seeded" : "new_empty";
+            }
+
+            if (!profileDir.exists()) {
+                profileDir.mkdirs();
+                log.info("📂 Created new physical directory for profile: {}", profileDir.getAbsolutePath());
+            }
 
 
 // Теперь Bind не упадет с NPE
-        Bind bind = new Bind(
-                profileDir.getAbsolutePath(),
-                new Volume("/data/user-data")
-        );
-
-        HostConfig hostConfig = HostConfig.newHostConfig()
-                .withBinds(bind)
-                .withAutoRemove(true) // Удалять контейнер, если он упал при старте
-                .withPortBindings(
-                        new PortBinding(Ports.Binding.bindPort(hostVncPort), ExposedPort.tcp(VNC_CONTAINER_PORT)),
-                        new PortBinding(Ports.Binding.bindPort(hostDevToolsPort), ExposedPort.tcp(DEVTOOLS_CONTAINER_PORT))
-                )
-                .withCapAdd(Capability.SYS_ADMIN)
-                .withSecurityOpts(List.of("seccomp=unconfined")); // Важно для Chrome в Docker
-
-        // 2. Подготовка ENV с расширенными флагами Chrome (ARGS)
-        List<String> envVars = prepareEnvironmentVars(profile, proxyOverride);
-
-        // 3. Создание и запуск
-        CreateContainerResponse container = dockerClient.createContainerCmd(IMAGE_NAME)
-                .withName(containerName)
-                .withHostConfig(hostConfig)
-                .withEnv(envVars)
-                .withUser("1000") // Запуск от имени созданного пользователя
-                .withExposedPorts(ExposedPort.tcp(VNC_CONTAINER_PORT), ExposedPort.tcp(DEVTOOLS_CONTAINER_PORT))
-                .exec();
-
-        String containerId = container.getId();
-        dockerClient.startContainerCmd(containerId).exec();
-
-        ACTIVE_CONTAINERS.put(profileId, ContainerInfo.builder()
-                .containerId(containerId).containerName(containerName).profileId(profileId)
-                .hostVncPort(hostVncPort).hostDevToolsPort(hostDevToolsPort).startedAt(Instant.now())
-                .build());
+            Bind bind = new Bind(
+                    profileDir.getAbsolutePath(),
+                    new Volume("/data/user-data")
+            );
+
+            HostConfig hostConfig = HostConfig.newHostConfig()
+                    .withBinds(bind)
+                    .withAutoRemove(true) // Удалять контейнер, если он упал при старте
+                    .withPortBindings(
+                            new PortBinding(Ports.Binding.bindPort(hostVncPort), ExposedPort.tcp(VNC_CONTAINER_PORT)),
+                            new PortBinding(Ports.Binding.bindPort(hostDevToolsPort), ExposedPort.tcp(DEVTOOLS_CONTAINER_PORT))
+                    )
+                    .withCapAdd(Capability.SYS_ADMIN)
+                    .withSecurityOpts(List.of("seccomp=unconfined")); // Важно для Chrome в Docker
+
+            // 2. Подготовка ENV с расширенными флагами Chrome (ARGS)
+            List<String> envVars = prepareEnvironmentVars(profile, proxyOverride);
+
+            // 3. Создание и запуск
+            CreateContainerResponse container = dockerClient.createContainerCmd(IMAGE_NAME)
+                    .withName(containerName)
+                    .withHostConfig(hostConfig)
+                    .withEnv(envVars)
+                    .withUser("1000") // Запуск от имени созданного пользователя
+                    .withExposedPorts(ExposedPort.tcp(VNC_CONTAINER_PORT), ExposedPort.tcp(DEVTOOLS_CONTAINER_PORT))
+                    .exec();
+
+            containerId = container.getId();
+            readyStarted = System.nanoTime();
+            dockerClient.startContainerCmd(containerId).exec();
+
+            ChromePerformancePreset preset = resolvePerformancePreset(profile);
+            ACTIVE_CONTAINERS.put(profileId, ContainerInfo.builder()
+                    .containerId(containerId).containerName(containerName).profileId(profileId)
+                    .hostVncPort(hostVncPort).hostDevToolsPort(hostDevToolsPort).startedAt(Instant.now())
+                    .performancePreset(preset != null ? preset.name() : null)
+                    .build());
+        } finally {
+            PENDING_STARTS.remove(profileId);
+            dirLock.unlock();
+        }
 
         String vncUrl = buildVncUrl(appProperties.getHostBaseUrl(), hostVncPort);
         String devToolsUrl = buildDevToolsUrl(appProperties.getHostBaseUrl(), hostDevToolsPort);
@@ -198,9 +285,12 @@ public class BrowserContainerService {
         waitForPortReady("127.0.0.1", hostDevToolsPort, Duration.ofSeconds(40));
 
         // 4. ГЛУБОКАЯ НАСТРОЙКА ЧЕРЕЗ CDP
-        boolean isNewProfile = !new File(profileDir, "Default").exists();
         configureBrowserDeep(devToolsUrl, profile, isNewProfile);
 
+        // Время до готового браузера: new_seeded против new_empty показывает выигрыш от эталона
+        meterRegistry.timer("browser.start.ready", "profile", startKind)
+                .record(System.nanoTime() - readyStarted, TimeUnit.NANOSECONDS);
+
         updateProfileStatus(profileId, "BUSY");
 
         System.out.println("Результат запуска BrowserStartResult" + BrowserStartResult.builder()
@@ -264,6 +354,12 @@ public class BrowserContainerService {
             chromeArgs.add("--force-webrtc-ip-handling-policy=disable_non_proxied_udp");
         }
 
+        // 4. Пресет производительности (плотность/кэши/фоновая активность)
+        ChromePerformancePreset preset = resolvePerformancePreset(profile);
+        if (preset != null) {
+            chromeArgs.addAll(preset.getChromeArgs());
+        }
+
         // ВАЖНО: Добавляем в env ТОЛЬКО ОДИН РАЗ в самом конце
         env.add("EXTRA_CHROME_ARGS=" + String.join(" ", chromeArgs));
 
@@ -274,6 +370,11 @@ public class BrowserContainerService {
         return env;
     }
 
+    private ChromePerformancePreset resolvePerformancePreset(Profile profile) {
+        ChromePerformancePreset preset = ChromePerformancePreset.fromName(profile.getChromePreset());
+        return preset != null ? preset : ChromePerformancePreset.fromName(defaultPerformancePreset);
+    }
+
     // -----------------------------------------------------------------------------------------
     // ЧАСТЬ 2: CDP Configuration (Глубокая настройка)
     // -----------------------------------------------------------------------------------------
@@ -297,45 +398,21 @@ public class BrowserContainerService {
             sendAndLog(cdp, "Runtime.enable", Map.of(), "Runtime Domain");
             sendAndLog(cdp, "Network.enable", Map.of(), "Network Domain");
 
-            // --- 2. Скрытие автоматизации ---
-            sendAndLog(cdp, "Emulation.setAutomationOverride", Map.of("enabled", false), "Disable Automation Override");
-
-            // --- 3. Инъекция JS (Fingerprint Polyfills) ---
-            // Убрали ручную строку с webdriver, так как она внутри buildPolyfillScript
-            String fullScript = buildPolyfillScript(profile);
-            sendAndLog(cdp, "Page.addScriptToEvaluateOnNewDocument", Map.of("source", fullScript), "JS Fingerprint Injection");
+            // --- 2-3. Скрытие автоматизации и JS-полифиллы ---
+            applyStealth(cdp, profile);
 
             if (isNewProfile) {
-                if (profile.getCookiesJson() != null && !profile.getCookiesJson().equals("[]")) {
+                String cookiesJson = cookieStore.loadCookiesJson(profile.getId());
+                if (cookiesJson != null) {
                     log.info("🍪 [PROFILE {}] Первый запуск: импортируем куки из базы данных", profile.getId());
-                    injectCookies(cdp, profile.getCookiesJson());
+                    injectCookies(cdp, cookiesJson);
                 }
             } else {
                 log.info("📂 [PROFILE {}] Повторный запуск: используем сессию из папки на диске (БД игнорируем)", profile.getId());
             }
 
-            // Авторизация прокси (всегда нужна)
-            if (profile.getProxyUrl() != null && profile.getProxyUrl().contains("@")) {
-                setupProxyAuth(cdp, profile.getProxyUrl());
-            }
-
-            // --- 5. Эмуляция железа и ГЕО ---
-            sendAndLog(cdp, "Emulation.setGeolocationOverride", Map.of(
-                    "latitude", profile.getGeoLatitude(),
-                    "longitude", profile.getGeoLongitude(),
-                    "accuracy", profile.getGeoAccuracy()
-            ), "Geolocation");
-
-            if (profile.getUserAgent() != null && profile.getUserAgent().contains("Mobile")) {
-                sendAndLog(cdp, "Emulation.setTouchEmulationEnabled", Map.of("enabled", true, "configuration", "mobile"), "Touch Emulation");
-
-                sendAndLog(cdp, "Emulation.setDeviceMetricsOverride", Map.of(
-                        "width", profile.getScreenWidth(),
-                        "height", profile.getScreenHeight(),
-                        "deviceScaleFactor", profile.getPixelRatio(),
-                        "mobile", true
-                ), "Mobile Metrics");
-            }
+            // --- 4-5. Прокси, железо и ГЕО ---
+            applyEmulation(cdp, profile);
 
             // --- 6. ПРИМЕНЕНИЕ И ПРОВЕРКА ---
             log.info("🚀 [PROFILE {}] Finalizing injection...", profile.getId());
@@ -350,10 +427,14 @@ public class BrowserContainerService {
             if (isOk) {
                 log.info("✅ [PROFILE {}] Integrity check PASSED.", profile.getId());
                 // Прогрев запускаем асинхронно
-                final DevToolsSession finalCdp = cdp;
+                // Дополнительные вкладки из пула получают те же настройки, что и первая
+                tabPool.registerBrowser(devToolsUrl, resolvePerformancePreset(profile), page -> {
+                    applyStealth(page, profile);
+                    applyEmulation(page, profile);
+                });
                 CompletableFuture.runAsync(() -> {
-                    try {
-                        warmUpService.runWarmUp(finalCdp, profile);
+                    try (TabHandle tab = tabPool.acquire(devToolsUrl, null)) {
+                        warmUpService.runWarmUp(tab.getPage(), profile);
                     } catch (Exception e) {
                         log.error("❌ Warm-up error: {}", e.getMessage());
                     }
@@ -367,6 +448,40 @@ public class BrowserContainerService {
         }
     }
 
+    /** Скрытие автоматизации и JS-полифиллы отпечатка; действует на все будущие документы вкладки */
+    private void applyStealth(DevToolsSession cdp, Profile profile) {
+        sendAndLog(cdp, "Emulation.setAutomationOverride", Map.of("enabled", false), "Disable Automation Override");
+
+        // Убрали ручную строку с webdriver, так как она внутри buildPolyfillScript
+        String fullScript = buildPolyfillScript(profile);
+        sendAndLog(cdp, "Page.addScriptToEvaluateOnNewDocument", Map.of("source", fullScript), "JS Fingerprint Injection");
+    }
+
+    /** Авторизация прокси и эмуляция железа/ГЕО для вкладки */
+    private void applyEmulation(DevToolsSession cdp, Profile profile) {
+        // Авторизация прокси (всегда нужна)
+        if (profile.getProxyUrl() != null && profile.getProxyUrl().contains("@")) {
+            setupProxyAuth(cdp, profile.getProxyUrl());
+        }
+
+        sendAndLog(cdp, "Emulation.setGeolocationOverride", Map.of(
+                "latitude", profile.getGeoLatitude(),
+                "longitude", profile.getGeoLongitude(),
+                "accuracy", profile.getGeoAccuracy()
+        ), "Geolocation");
+
+        if (profile.getUserAgent() != null && profile.getUserAgent().contains("Mobile")) {
+            sendAndLog(cdp, "Emulation.setTouchEmulationEnabled", Map.of("enabled", true, "configuration", "mobile"), "Touch Emulation");
+
+            sendAndLog(cdp, "Emulation.setDeviceMetricsOverride", Map.of(
+                    "width", profile.getScreenWidth(),
+                    "height", profile.getScreenHeight(),
+                    "deviceScaleFactor", profile.getPixelRatio(),
+                    "mobile", true
+            ), "Mobile Metrics");
+        }
+    }
+
     /**
      * Вспомогательный метод для отправки команды и логирования результата
      */
@@ -849,8 +964,11 @@ private boolean verifyProfileIntegrity(DevToolsSession cdp, Profile profile) {
 
     // --- Реализация методов, которых не хватало в твоем коде ---
 
-    private void checkContainerLimit() {
-        if (ACTIVE_CONTAINERS.size() >= maxContainers) {
+    // идущие запуски занимают место заранее — параллельные старты не проскочат предел вместе
+    private void checkContainerLimit(Long profileId) {
+        PENDING_STARTS.add(profileId);
+        if (ACTIVE_CONTAINERS.size() + PENDING_STARTS.size() > maxContainers) {
+            PENDING_STARTS.remove(profileId);
             throw new RuntimeException("Max container limit reached: " + maxContainers);
         }
     }
@@ -901,12 +1019,10 @@ private boolean verifyProfileIntegrity(DevToolsSession cdp, Profile profile) {
     }
 
     private void updateProfileStatus(Long profileId, String status) {
-        // Простейшая реализация, в идеале через Transactional сервис
-        Profile p = profileRepository.findById(profileId).orElse(null);
-        if (p != null) {
-            p.setStatus(status);
-            profileRepository.save(p);
-        }
+        // write-behind: переходы BUSY/STOPPING/FREE схлопываются и пишутся батчем.
+        // Без держателя: у профиля с живой арендой статус не меняется (условие в ProfileStatusWriter),
+        // аренду снимает только ProfileLeaseService — stop её не трогает
+        profileStatusWriter.submit(ProfileStatusWriter.StatusChange.status(profileId, status));
     }
 
     @SneakyThrows
@@ -931,6 +1047,15 @@ private boolean verifyProfileIntegrity(DevToolsSession cdp, Profile profile) {
     // -------------------- STOP --------------------
     // ШАГ 7: Остановка браузера
     public boolean stopBrowser(Long profileId) {
+        boolean stopped = doStopBrowser(profileId);
+        if (stopped) {
+            eventPublisher.publishEvent(ProfileLifecycleEvent.of(
+                    ProfileLifecycleEvent.BROWSER_STOPPED, profileId, "STOPPED"));
+        }
+        return stopped;
+    }
+
+    private boolean doStopBrowser(Long profileId) {
         final String containerName = "browser_profile_" + profileId;
 
         ReentrantLock lock = STOP_LOCKS.computeIfAbsent(profileId, id -> new ReentrantLock());
@@ -947,6 +1072,7 @@ private boolean verifyProfileIntegrity(DevToolsSession cdp, Profile profile) {
             // подключаемся по CDP и забираем куки в БД.
             saveCookiesBeforeStop(profileId);
             // ------------------------------
+            evictTabPool(profileId);
             String containerId = inspected.getId();
             updateProfileStatus(profileId, "STOPPING");
 
@@ -974,6 +1100,8 @@ private boolean verifyProfileIntegrity(DevToolsSession cdp, Profile profile) {
 
             ACTIVE_CONTAINERS.remove(profileId);
             updateProfileStatus(profileId, "FREE");
+            // Chrome больше не пишет в профиль — пересчитываем размер
+            diskUsageService.rescanAsync(profileId);
             return true;
 
         } finally {
@@ -984,6 +1112,12 @@ private boolean verifyProfileIntegrity(DevToolsSession cdp, Profile profile) {
 
 
 
+    private void evictTabPool(Long profileId) {
+        ContainerInfo info = ACTIVE_CONTAINERS.get(profileId);
+        if (info == null) return;
+        tabPool.evictBrowser(buildDevToolsUrl(appProperties.getHostBaseUrl(), info.getHostDevToolsPort()));
+    }
+
     private boolean waitStoppedById(String containerId, int seconds) {
         long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
         while (System.currentTimeMillis() < deadline) {
@@ -1021,10 +1155,108 @@ private boolean verifyProfileIntegrity(DevToolsSession cdp, Profile profile) {
         return running;
     }
 
+    /** Число зарегистрированных контейнеров (без docker inspect) */
+    public int getActiveContainerCount() {
+        return ACTIVE_CONTAINERS.size();
+    }
+
+    /** Запуски, которые уже заняли место, но контейнер ещё не зарегистрирован */
+    public int getPendingStartCount() {
+        return PENDING_STARTS.size();
+    }
+
+    public int getMaxContainers() {
+        return maxContainers;
+    }
+
     public Optional<ContainerInfo> getContainerInfo(Long profileId) {
         return Optional.ofNullable(ACTIVE_CONTAINERS.get(profileId));
     }
 
+    /**
+     * Снимок RSS/CPU по всем активным контейнерам с разбивкой по пресетам —
+     * чтобы сравнивать DENSE/BALANCED/INTERACTIVE на живой нагрузке.
+     */
+    public ContainerResourceReport collectResourceUsage() {
+        List<ContainerResourceUsage> usages = new ArrayList<>();
+        for (ContainerInfo info : ACTIVE_CONTAINERS.values()) {
+            usages.add(sampleResourceUsage(info));
+        }
+
+        Map<String, List<ContainerResourceUsage>> byPreset = new TreeMap<>();
+        for (ContainerResourceUsage u : usages) {
+            if (u.getError() != null) continue;
+            String key = u.getPerformancePreset() != null ? u.getPerformancePreset() : "NONE";
+            byPreset.computeIfAbsent(key, k -> new ArrayList<>()).add(u);
+        }
+
+        Map<String, Long> counts = new TreeMap<>();
+        Map<String, Double> avgRssMb = new TreeMap<>();
+        Map<String, Double> avgCpu = new TreeMap<>();
+        byPreset.forEach((preset, list) -> {
+            counts.put(preset, (long) list.size());
+            avgRssMb.put(preset, list.stream().mapToLong(ContainerResourceUsage::getRssBytes).average().orElse(0) / (1024 * 1024));
+            avgCpu.put(preset, list.stream().mapToDouble(ContainerResourceUsage::getCpuPercent).average().orElse(0));
+        });
+
+        return ContainerResourceReport.builder()
+                .totalContainers(usages.size())
+                .containers(usages)
+                .containersByPreset(counts)
+                .avgRssMbByPreset(avgRssMb)
+                .avgCpuPercentByPreset(avgCpu)
+                .sampledAt(Instant.now())
+                .build();
+    }
+
+    private ContainerResourceUsage sampleResourceUsage(ContainerInfo info) {
+        ContainerResourceUsage.ContainerResourceUsageBuilder b = ContainerResourceUsage.builder()
+                .profileId(info.getProfileId())
+                .containerId(info.getContainerId())
+                .performancePreset(info.getPerformancePreset())
+                .uptimeSeconds(info.getUptime().getSeconds());
+        try {
+            Statistics stats = dockerClient.statsCmd(info.getContainerId())
+                    .withNoStream(true)
+                    .exec(new InvocationBuilder.AsyncResultCallback<>())
+                    .awaitResult();
+
+            MemoryStatsConfig mem = stats.getMemoryStats();
+            if (mem != null) {
+                long usage = mem.getUsage() != null ? mem.getUsage() : 0L;
+                long rss = usage;
+                StatsConfig ms = mem.getStats();
+                if (ms != null && ms.getRss() != null) {
+                    rss = ms.getRss();                                   // cgroup v1
+                } else if (ms != null && ms.getInactiveFile() != null) {
+                    rss = Math.max(0, usage - ms.getInactiveFile());     // cgroup v2: working set
+                }
+                b.memoryUsageBytes(usage).rssBytes(rss).memoryLimitBytes(mem.getLimit() != null ? mem.getLimit() : 0L);
+            }
+
+            b.cpuPercent(cpuPercent(stats.getCpuStats(), stats.getPreCpuStats()));
+        } catch (Exception e) {
+            b.error(e.getMessage());
+        }
+        return b.build();
+    }
+
+    private double cpuPercent(CpuStatsConfig cpu, CpuStatsConfig pre) {
+        if (cpu == null || pre == null || cpu.getCpuUsage() == null || pre.getCpuUsage() == null) return 0;
+        Long total = cpu.getCpuUsage().getTotalUsage();
+        Long preTotal = pre.getCpuUsage().getTotalUsage();
+        Long system = cpu.getSystemCpuUsage();
+        Long preSystem = pre.getSystemCpuUsage();
+        if (total == null || preTotal == null || system == null || preSystem == null) return 0;
+
+        double cpuDelta = total - preTotal;
+        double systemDelta = system - preSystem;
+        if (cpuDelta <= 0 || systemDelta <= 0) return 0;
+
+        long cpus = cpu.getOnlineCpus() != null ? cpu.getOnlineCpus() : 1;
+        return cpuDelta / systemDelta * cpus * 100.0;
+    }
+
     @PreDestroy
     public void shutdown() {
         executorService.shutdownNow();
@@ -1049,12 +1281,9 @@ private boolean verifyProfileIntegrity(DevToolsSession cdp, Profile profile) {
                     JsonNode cookies = response.path("cookies");
 
                     if (cookies.isArray() && cookies.size() > 0) {
-                        Profile profile = profileRepository.findById(profileId).orElse(null);
-                        if (profile != null) {
-                            profile.setCookiesJson(cookies.toString());
-                            profileRepository.save(profile);
-                            log.info("💾 [PROFILE {}] Куки синхронизированы с БД перед остановкой", profileId);
-                        }
+                        int changed = cookieStore.saveCookies(profileId, cookies);
+                        log.info("💾 [PROFILE {}] Куки синхронизированы с БД перед остановкой (изменено доменов: {})",
+                                profileId, changed);
                     }
                 }
             }
@@ -3,7 +3,7 @@ package com.hunt.peoples.browser.service;
 
 import com.hunt.peoples.browser.config.DevToolsSession;
 import com.hunt.peoples.profiles.entity.Profile;
-import com.hunt.peoples.profiles.repository.ProfileRepository;
+import com.hunt.peoples.profiles.service.ProfileCache;
 import com.hunt.peoples.profiles.service.QaScriptGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,7 +23,7 @@ import java.util.Map;
 @Slf4j
 public class BrowserScriptInjector {
 
-    private final ProfileRepository profileRepository;
+    private final ProfileCache profileCache;
     private final QaScriptGenerator qaScriptGenerator;
 
     @Value("${browser.cdp.inject.enabled:true}")
@@ -58,7 +58,7 @@ public class BrowserScriptInjector {
             return 0;
         }
 
-        Profile profile = profileRepository.findById(profileId).orElse(null);
+        Profile profile = profileCache.findById(profileId).orElse(null);
         if (profile == null) {
             log.warn("injectForProfile: profile not found (profileId={})", profileId);
             return 0;
@@ -1597,7 +1597,7 @@ public class BrowserScriptInjector {
 //            return 0;
 //        }
 //
-//        Profile profile = profileRepository.findById(profileId).orElse(null);
+//        Profile profile = profileCache.findById(profileId).orElse(null);
 //        if (profile == null) {
 //            log.warn("injectForProfile: profile not found (profileId={})", profileId);
 //            return 0;
@@ -3,7 +3,7 @@ package com.hunt.peoples.browser.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.hunt.peoples.browser.config.DevToolsSession;
 import com.hunt.peoples.profiles.entity.Profile;
-import com.hunt.peoples.profiles.repository.ProfileRepository;
+import com.hunt.peoples.profiles.service.ProfileCookieStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -16,7 +16,7 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class BrowserWarmUpService {
 
-    private final ProfileRepository profilesRepository;
+    private final ProfileCookieStore cookieStore;
 
     /**
      * Основной метод прогрева: имитирует реальное поведение пользователя
@@ -251,8 +251,7 @@ public class BrowserWarmUpService {
             JsonNode cookies = response.path("cookies");
 
             if (!cookies.isMissingNode() && cookies.isArray()) {
-                profile.setCookiesJson(cookies.toString());
-                profilesRepository.save(profile);
+                cookieStore.saveCookies(profile.getId(), cookies);
                 log.info("✅ Успешно сохранено {} куки в БД для профиля {}", cookies.size(), profile.getId());
             }
         } catch (Exception e) {
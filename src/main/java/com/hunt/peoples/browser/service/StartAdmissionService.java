@@ -0,0 +1,240 @@
+package com.hunt.peoples.browser.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Допуск запросов на запуск браузера до того, как началась работа с Docker.
+ *
+ * Две ступени. tryAdmit — token bucket на клиента и на тенанта, на входе запроса
+ * (StartAdmissionInterceptor). withStartSlot — вокруг самого startBrowser, уже после проверки
+ * «браузер уже запущен»: предел одновременных запусков и свободные места под контейнеры
+ * (зарегистрированные + ещё не зарегистрированные запуски против browser.container.max-containers).
+ * Подключение к уже запущенному браузеру слотов не занимает.
+ *
+ * Отказ несёт retryAfterSeconds: для корзин — время до следующего токена, для предела
+ * запусков — глубина очереди, делённая на наблюдаемую скорость запусков (EWMA длительности
+ * успешного старта).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StartAdmissionService {
+
+    private static final int MAX_BUCKETS = 10_000;
+
+    private final BrowserContainerService browserContainerService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${admission.client.rate-per-sec:1}")
+    private double clientRate;
+
+    @Value("${admission.client.burst:5}")
+    private int clientBurst;
+
+    @Value("${admission.tenant.rate-per-sec:5}")
+    private double tenantRate;
+
+    @Value("${admission.tenant.burst:20}")
+    private int tenantBurst;
+
+    @Value("${admission.max-concurrent-starts:8}")
+    private int maxConcurrentStarts;
+
+    // контейнеры освобождаются только остановкой — скорость не наблюдаема, ждём фиксированно
+    @Value("${admission.capacity-retry-after-sec:30}")
+    private long capacityRetryAfterSec;
+
+    // оценка до первого наблюдения
+    @Value("${admission.initial-start-ms:20000}")
+    private long initialStartMs;
+
+    private final ConcurrentHashMap<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket> tenantBuckets = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double avgStartMs;
+
+    @PostConstruct
+    public void init() {
+        avgStartMs = initialStartMs;
+        meterRegistry.gauge("admission.starts.inflight", inFlight);
+        meterRegistry.gauge("admission.start.avg.ms", this, a -> a.avgStartMs);
+    }
+
+    /**
+     * Проверить корзины клиента и тенанта. tenantId может быть null — тогда тенантная
+     * корзина не проверяется. Слот запуска здесь не занимается.
+     */
+    public Decision tryAdmit(String clientId, String tenantId) {
+        if (!enabled) return Decision.ADMITTED;
+
+        TokenBucket client = bucket(clientBuckets, clientId, clientRate, clientBurst);
+        long waitNanos = client.tryTake();
+        if (waitNanos > 0) {
+            return reject("client_rate", nanosToSeconds(waitNanos));
+        }
+        if (tenantId != null && !tenantId.isBlank()) {
+            waitNanos = bucket(tenantBuckets, tenantId, tenantRate, tenantBurst).tryTake();
+            if (waitNanos > 0) {
+                client.refund();
+                return reject("tenant_rate", nanosToSeconds(waitNanos));
+            }
+        }
+        return Decision.ADMITTED;
+    }
+
+    /**
+     * Выполнить запуск в слоте; нет слота — StartRejectedException без обращения к Docker.
+     */
+    public <T> T withStartSlot(Supplier<T> start) {
+        Decision decision = tryAcquireSlot();
+        if (!decision.admitted()) {
+            throw new StartRejectedException(decision);
+        }
+        long started = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = start.get();
+            success = true;
+            return result;
+        } finally {
+            release(System.nanoTime() - started, success);
+        }
+    }
+
+    /**
+     * Занять слот запуска. При admitted=true вызывающий обязан вызвать release().
+     */
+    Decision tryAcquireSlot() {
+        if (!enabled) {
+            inFlight.incrementAndGet();
+            return Decision.ADMITTED;
+        }
+
+        int maxContainers = browserContainerService.getMaxContainers();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxConcurrentStarts) {
+                return reject("concurrency", concurrencyRetryAfter(current));
+            }
+            // наши слоты уже учтены в pending (до регистрации) или в active (после) — не прибавляем их ещё раз
+            int occupied = browserContainerService.getActiveContainerCount()
+                    + browserContainerService.getPendingStartCount();
+            if (occupied >= maxContainers) {
+                return reject("capacity", capacityRetryAfterSec);
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return Decision.ADMITTED;
+            }
+        }
+    }
+
+    /**
+     * Освободить слот. Длительность успешного запуска обновляет оценку скорости.
+     */
+    void release(long durationNanos, boolean success) {
+        inFlight.decrementAndGet();
+        if (success) {
+            double ms = durationNanos / 1_000_000.0;
+            avgStartMs = avgStartMs * 0.8 + ms * 0.2;
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    // слоты освобождаются со скоростью maxConcurrent / avgStart; впереди нас (depth) запусков
+    private long concurrencyRetryAfter(int current) {
+        int depth = current - maxConcurrentStarts + 1;
+        double seconds = depth * avgStartMs / 1000.0 / Math.max(1, maxConcurrentStarts);
+        return Math.max(1, (long) Math.ceil(seconds));
+    }
+
+    private Decision reject(String reason, long retryAfterSeconds) {
+        meterRegistry.counter("admission.rejected", "reason", reason).increment();
+        log.debug("Start rejected: {} (retry after {} s)", reason, retryAfterSeconds);
+        return new Decision(false, reason, retryAfterSeconds);
+    }
+
+    private TokenBucket bucket(ConcurrentHashMap<String, TokenBucket> buckets, String key, double rate, int burst) {
+        if (buckets.size() > MAX_BUCKETS) {
+            // полные корзины ничего не помнят — их можно выбросить
+            buckets.values().removeIf(TokenBucket::isFull);
+        }
+        return buckets.computeIfAbsent(key != null ? key : "", k -> new TokenBucket(rate, burst));
+    }
+
+    private static long nanosToSeconds(long nanos) {
+        return Math.max(1, (long) Math.ceil(nanos / (double) TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    public record Decision(boolean admitted, String reason, long retryAfterSeconds) {
+        static final Decision ADMITTED = new Decision(true, null, 0);
+    }
+
+    /** Нет слота под запуск; контроллеры отвечают 429 с Retry-After */
+    public static class StartRejectedException extends RuntimeException {
+        private final Decision decision;
+
+        public StartRejectedException(Decision decision) {
+            super("Start rejected: " + decision.reason());
+            this.decision = decision;
+        }
+
+        public Decision getDecision() {
+            return decision;
+        }
+    }
+
+    private static final class TokenBucket {
+        private final double ratePerNano;
+        private final double capacity;
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(double ratePerSec, int burst) {
+            this.ratePerNano = ratePerSec / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = Math.max(1, burst);
+            this.tokens = capacity;
+            this.refilledAt = System.nanoTime();
+        }
+
+        /** 0 — токен взят, иначе сколько наносекунд ждать следующего */
+        synchronized long tryTake() {
+            refill();
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return ratePerNano > 0 ? (long) Math.ceil((1 - tokens) / ratePerNano) : Long.MAX_VALUE;
+        }
+
+        synchronized void refund() {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+
+        synchronized boolean isFull() {
+            refill();
+            return tokens >= capacity;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * ratePerNano);
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.hunt.peoples.profiles.config;
+
+import org.springframework.boot.flyway.autoconfigure.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FlywayConfig {
+
+    /**
+     * БД, которые раньше создавал Hibernate (ddl-auto), уже содержат схему V1:
+     * на них Flyway ставит baseline на версию 1 и применяет только V2+.
+     * Пустая БД проходит все миграции с V1.
+     */
+    @Bean
+    public FlywayConfigurationCustomizer baselineExistingSchema() {
+        return configuration -> configuration
+                .baselineOnMigrate(true)
+                .baselineVersion("1");
+    }
+}
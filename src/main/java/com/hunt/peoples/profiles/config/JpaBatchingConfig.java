@@ -0,0 +1,45 @@
+package com.hunt.peoples.profiles.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JpaBatchingConfig {
+
+    /**
+     * JDBC-батчинг Hibernate: INSERT/UPDATE одной сущности группируются по batch-size
+     * (работает только с SEQUENCE-генерацией id, см. V7__pooled_id_sequences.sql).
+     */
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatching(@Value("${jpa.jdbc.batch-size:50}") int batchSize) {
+        return properties -> {
+            properties.putIfAbsent("hibernate.jdbc.batch_size", batchSize);
+            properties.putIfAbsent("hibernate.order_inserts", true);
+            properties.putIfAbsent("hibernate.order_updates", true);
+            properties.putIfAbsent("hibernate.jdbc.batch_versioned_data", true);
+        };
+    }
+
+    /**
+     * pgjdbc по умолчанию шлёт батч как N отдельных INSERT; reWriteBatchedInserts
+     * склеивает их в multi-row INSERT ... VALUES (...), (...).
+     */
+    @Bean
+    public static BeanPostProcessor postgresBatchRewrite() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource ds
+                        && ds.getJdbcUrl() != null && ds.getJdbcUrl().startsWith("jdbc:postgresql:")
+                        && !ds.getDataSourceProperties().containsKey("reWriteBatchedInserts")) {
+                    ds.addDataSourceProperty("reWriteBatchedInserts", "true");
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -11,12 +11,16 @@ import com.hunt.peoples.profiles.repository.FingerprintCheckRepository;
 import com.hunt.peoples.profiles.repository.ProfileRepository;
 import com.hunt.peoples.profiles.service.FingerprintGenerator;
 import com.hunt.peoples.profiles.service.FingerprintMonitor;
+import com.hunt.peoples.profiles.service.ProfileStatisticsService;
 import com.hunt.peoples.profiles.service.ProfilesService;
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Window;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -44,6 +48,7 @@ public class FingerprintController {
     private final ProfileRepository profileRepository;
     private final FingerprintCheckRepository checkRepository;
     private final BrowserScriptInjector scriptInjector;
+    private final ProfileStatisticsService statisticsService;
 
 
     @PostMapping("/{profileId}/test")
@@ -134,13 +139,55 @@ public class FingerprintController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "checkedAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDirection) {
+            @RequestParam(defaultValue = "desc") String sortDirection,
+            @RequestParam(defaultValue = "false") boolean keyset,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean approxTotal) {
 
         // Проверяем существование профиля
         if (!profileRepository.existsById(profileId)) {
             return ResponseEntity.notFound().build();
         }
 
+        // Keyset-режим: seek по (checkedAt, id) без OFFSET и без COUNT(*)
+        if (keyset || cursor != null) {
+            if (!"checkedAt".equals(sortBy) && !"id".equals(sortBy)) {
+                return ResponseEntity.badRequest()
+                        .header("X-Error", "Keyset pagination supports sortBy: checkedAt, id")
+                        .build();
+            }
+            KeysetScrollPosition position;
+            try {
+                position = KeysetCursors.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().header("X-Error", e.getMessage()).build();
+            }
+
+            Sort.Direction direction = sortDirection.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+            Sort keysetSort = "id".equals(sortBy)
+                    ? Sort.by(direction, "id")
+                    : Sort.by(direction, sortBy).and(Sort.by(direction, "id"));
+
+            Window<FingerprintCheck> window = checkRepository.findWindowByProfileId(
+                    profileId, position, keysetSort, Limit.of(size));
+
+            List<FingerprintCheckDto> content = window.getContent().stream().map(FingerprintCheckDto::fromEntity).toList();
+            String nextCursor = KeysetCursors.next(window, position);
+            PaginatedResponse.PaginatedResponseBuilder<FingerprintCheckDto> builder = PaginatedResponse.<FingerprintCheckDto>builder()
+                    .content(content)
+                    .pageSize(size)
+                    .numberOfElements(content.size())
+                    .empty(content.isEmpty())
+                    .first(position.isInitial())
+                    .last(nextCursor == null)
+                    .nextCursor(nextCursor)
+                    .prevCursor(KeysetCursors.prev(window, position));
+            if (approxTotal) {
+                builder.totalElements(checkRepository.countByProfileId(profileId)).approximateTotal(false);
+            }
+            return ResponseEntity.ok(builder.build());
+        }
+
         // Создаем спецификацию для сортировки
         Sort sort = sortDirection.equalsIgnoreCase("desc")
                 ? Sort.by(sortBy).descending()
@@ -285,56 +332,7 @@ public class FingerprintController {
     public ResponseEntity<FingerprintDashboard> getDashboard(
             @RequestParam(defaultValue = "7") int days) {
 
-        Instant fromDate = Instant.now().minus(days, ChronoUnit.DAYS);
-
-        // Общая статистика
-        long totalProfiles = profileRepository.count();
-        long activeProfiles = profileRepository.findByStatus("BUSY").size();
-        long highRiskProfiles = profileRepository.findByDetectionRiskGreaterThanEqual(0.7).size();
-
-        // Статистика проверок
-        List<FingerprintCheck> recentChecks = checkRepository.findChecksBetweenDates(fromDate, Instant.now());
-
-        Map<String, Long> checksByDay = recentChecks.stream()
-                .collect(Collectors.groupingBy(
-                        check -> check.getCheckedAt().atZone(ZoneId.systemDefault()).toLocalDate().toString(),
-                        Collectors.counting()
-                ));
-
-        Map<String, Long> riskDistribution = recentChecks.stream()
-                .collect(Collectors.groupingBy(
-                        FingerprintCheck::getRiskLevel,
-                        Collectors.counting()
-                ));
-
-        double averageRisk = recentChecks.stream()
-                .mapToDouble(check -> check.getOverallRisk() != null ? check.getOverallRisk() : 0.0)
-                .average()
-                .orElse(0.0);
-
-        // Статистика по устройствам
-        Map<String, Long> deviceDistribution = profileRepository.findAll().stream()
-                .filter(p -> p.getPlatform() != null)
-                .collect(Collectors.groupingBy(
-                        Profile::getPlatform,
-                        Collectors.counting()
-                ));
-
-        // Создаем дашборд
-        FingerprintDashboard dashboard = FingerprintDashboard.builder()
-                .totalProfiles(totalProfiles)
-                .activeProfiles(activeProfiles)
-                .highRiskProfiles(highRiskProfiles)
-                .totalChecks((long) recentChecks.size())
-                .averageRisk(averageRisk)
-                .checksByDay(checksByDay)
-                .riskDistribution(riskDistribution)
-                .deviceDistribution(deviceDistribution)
-                .generatedAt(Instant.now())
-                .timeRangeDays(days)
-                .build();
-
-        return ResponseEntity.ok(dashboard);
+        return ResponseEntity.ok(statisticsService.getFingerprintDashboard(days));
     }
 
     @GetMapping("/available-devices")
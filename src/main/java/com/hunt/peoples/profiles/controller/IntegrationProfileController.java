@@ -3,15 +3,19 @@ package com.hunt.peoples.profiles.controller;
 import com.hunt.peoples.browser.config.AppProperties;
 import com.hunt.peoples.browser.dto.BrowserStartResult;
 import com.hunt.peoples.browser.service.BrowserContainerService;
+import com.hunt.peoples.browser.service.StartAdmissionService;
 import com.hunt.peoples.profiles.entity.Profile;
 import com.hunt.peoples.profiles.repository.ProfileRepository;
 import com.hunt.peoples.profiles.service.FingerprintMonitor;
+import com.hunt.peoples.profiles.service.ProfileCache;
 import com.hunt.peoples.profiles.service.ProfilesService;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -20,6 +24,11 @@ import org.springframework.web.util.UriComponentsBuilder;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -31,15 +40,95 @@ public class IntegrationProfileController {
 
     private final ProfileRepository profileRepository;
     private final ProfilesService profilesService;
+    private final ProfileCache profileCache;
     private final BrowserContainerService browserContainerService;
     private final FingerprintMonitor fingerprintMonitor;
     private final AppProperties appProperties;
+    private final MeterRegistry meterRegistry;
+    private final StartAdmissionService admissionService;
+
+    // externalKey -> connect, который сейчас выполняется
+    private final ConcurrentHashMap<String, InFlightConnect> inFlightConnects = new ConcurrentHashMap<>();
+
+    // сколько повторный connect ждёт результата первого; дольше — 503 с Retry-After
+    @Value("${integration.connect.coalesce-wait-ms:120000}")
+    private long coalesceWaitMs;
 
     @PostMapping("/connect")
     @Operation(summary = "Подключиться к профилю или создать новый и запустить браузер")
     public ResponseEntity<IntegrationConnectResponse> connect(
             @Valid @RequestBody IntegrationConnectRequest request) {
 
+        // single-flight: повторный connect по тому же ключу и с теми же параметрами, пока первый
+        // ещё стартует браузер, ждёт и получает его результат, а не создаёт второй контейнер
+        String key = request.externalKey();
+        if (key == null) {
+            return doConnect(request);
+        }
+        InFlightConnect mine = new InFlightConnect(request, new CompletableFuture<>());
+        InFlightConnect inFlight = inFlightConnects.putIfAbsent(key, mine);
+        if (inFlight != null) {
+            return awaitInFlight(key, request, inFlight);
+        }
+
+        try {
+            ResponseEntity<IntegrationConnectResponse> response = doConnect(request);
+            mine.result().complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightConnects.remove(key, mine);
+        }
+    }
+
+    private ResponseEntity<IntegrationConnectResponse> awaitInFlight(String key, IntegrationConnectRequest request,
+                                                                     InFlightConnect inFlight) {
+        if (!inFlight.sameParameters(request)) {
+            // другой прокси/устройство/отпечаток — чужой результат не подходит, а параллельный старт
+            // того же профиля только помешает первому
+            meterRegistry.counter("integration.connect.coalesce.rejected", "reason", "parameters").increment();
+            log.warn("Connect for externalKey {} with different parameters is already in progress", key);
+            return connectBusy(key, HttpStatus.CONFLICT,
+                    "Connect for this externalKey with different parameters is in progress");
+        }
+
+        meterRegistry.counter("integration.connect.coalesced").increment();
+        log.info("Connect for externalKey {} is already in progress, waiting for its result", key);
+        try {
+            return inFlight.result().get(coalesceWaitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // ведомый получает ту же ошибку, что и ведущий, без обёртки
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            meterRegistry.counter("integration.connect.coalesce.rejected", "reason", "timeout").increment();
+            log.warn("Connect for externalKey {} still in progress after {} ms", key, coalesceWaitMs);
+            return connectBusy(key, HttpStatus.SERVICE_UNAVAILABLE, "Connect for this externalKey is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return connectBusy(key, HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for connect");
+        }
+    }
+
+    private ResponseEntity<IntegrationConnectResponse> connectBusy(String externalKey, HttpStatus status,
+                                                                   String message) {
+        IntegrationConnectResponse body = IntegrationConnectResponse.builder()
+                .externalKey(externalKey)
+                .success(false)
+                .errorMessage(message)
+                .connectedAt(Instant.now())
+                .build();
+        return ResponseEntity.status(status)
+                .header("Retry-After", "5")
+                .header("X-Error", message)
+                .body(body);
+    }
+
+    private ResponseEntity<IntegrationConnectResponse> doConnect(IntegrationConnectRequest request) {
         String externalKey = request.externalKey();
         System.out.println("!!!externalKey!!!: " + externalKey);
         String proxyUrl = request.proxyUrl();
@@ -69,13 +158,12 @@ public class IntegrationProfileController {
                 return handleAlreadyRunningProfile(profile);
             }
 
-            // 3. Запускаем браузер
-            BrowserStartResult result = browserContainerService.startBrowser(profile, proxyUrl);
+            // 3. Запускаем браузер (слот запуска — только здесь, уже запущенный его не занимает)
+            BrowserStartResult result = admissionService.withStartSlot(
+                    () -> browserContainerService.startBrowser(profile, proxyUrl));
 
-            // 4. Обновляем статус профиля
-            profile.setStatus("BUSY");
-            profile.setLastUsedAt(Instant.now());
-            profileRepository.save(profile);
+            // 4. Обновляем статус профиля (BUSY + lastUsedAt, UPDATE только этих колонок)
+            profilesService.updateProfileStatus(profile.getId(), "BUSY");
 
             // 5. Формируем ответ
             IntegrationConnectResponse response = buildSuccessResponse(profile, result);
@@ -85,6 +173,18 @@ public class IntegrationProfileController {
 
             return ResponseEntity.ok(response);
 
+        } catch (StartAdmissionService.StartRejectedException e) {
+            log.warn("Integration connect for externalKey {} rejected: {}", externalKey, e.getMessage());
+            IntegrationConnectResponse body = IntegrationConnectResponse.builder()
+                    .externalKey(externalKey)
+                    .success(false)
+                    .errorMessage(e.getMessage())
+                    .connectedAt(Instant.now())
+                    .build();
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", String.valueOf(e.getDecision().retryAfterSeconds()))
+                    .header("X-Error", e.getMessage())
+                    .body(body);
         } catch (Exception e) {
             log.error("Integration connect failed for externalKey: {}", externalKey, e);
             return buildErrorResponse(externalKey, e);
@@ -103,11 +203,9 @@ public class IntegrationProfileController {
                         boolean stopped = browserContainerService.stopBrowser(profile.getId());
 
                         if (stopped) {
-                            // теперь можно safely ставить FREE
-                            profile.setStatus("FREE");
-                            profile.setLockedByUserId(null);
-                            profile.setLastUsedAt(Instant.now());
-                            profileRepository.save(profile);
+                            // теперь можно safely ставить FREE (и снять блокировку/аренду),
+                            // если профиль держит тот же, кто держал до остановки
+                            profilesService.unlockProfile(profile.getId(), profile.getLockedByUserId());
 
                             log.info("Browser stopped for profile {} (externalKey: {})",
                                     profile.getId(), externalKey);
@@ -115,9 +213,7 @@ public class IntegrationProfileController {
                             return ResponseEntity.ok(IntegrationStopResponse.success(externalKey));
                         } else {
                             // контейнер ещё “дожимается” или завис — не освобождаем профиль
-                            profile.setStatus("STOPPING"); // или BUSY, но лучше STOPPING
-                            profile.setLastUsedAt(Instant.now());
-                            profileRepository.save(profile);
+                            profilesService.updateProfileStatus(profile.getId(), "STOPPING"); // или BUSY, но лучше STOPPING
 
                             return ResponseEntity
                                     .status(HttpStatus.ACCEPTED)
@@ -167,7 +263,7 @@ public class IntegrationProfileController {
         log.debug("Integration status request for externalKey: {}", safeKey);
 
         try {
-            return profileRepository.findByExternalKey(safeKey)
+            return profileCache.findByExternalKey(safeKey)
                     .map(profile -> {
                         boolean isRunning = browserContainerService.isBrowserRunning(profile.getId());
                         var containerInfo = browserContainerService.getContainerInfo(profile.getId());
@@ -277,7 +373,9 @@ public class IntegrationProfileController {
         log.warn("Container not found but browser marked as running for profile {}", profile.getId());
         browserContainerService.stopBrowser(profile.getId());
 
-        BrowserStartResult result = browserContainerService.startBrowser(profile, profile.getProxyUrl());
+        // перезапуск занимает слот; StartRejectedException doConnect превращает в 429
+        BrowserStartResult result = admissionService.withStartSlot(
+                () -> browserContainerService.startBrowser(profile, profile.getProxyUrl()));
 
         IntegrationConnectResponse response = buildSuccessResponse(profile, result);
         response.setMessage("Browser was restarted due to state inconsistency");
@@ -369,6 +467,23 @@ public class IntegrationProfileController {
             Boolean forceNewFingerprint
     ) {}
 
+    private record InFlightConnect(IntegrationConnectRequest request,
+                                   CompletableFuture<ResponseEntity<IntegrationConnectResponse>> result) {
+
+        // detectionLevel и forceNewFingerprint сравниваются с учётом значений по умолчанию из doConnect
+        boolean sameParameters(IntegrationConnectRequest other) {
+            return Objects.equals(request.proxyUrl(), other.proxyUrl())
+                    && Objects.equals(request.deviceType(), other.deviceType())
+                    && Objects.equals(level(request), level(other))
+                    && Boolean.TRUE.equals(request.forceNewFingerprint())
+                       == Boolean.TRUE.equals(other.forceNewFingerprint());
+        }
+
+        private static String level(IntegrationConnectRequest r) {
+            return r.detectionLevel() != null ? r.detectionLevel() : "ENHANCED";
+        }
+    }
+
 
     @Data
     @Builder
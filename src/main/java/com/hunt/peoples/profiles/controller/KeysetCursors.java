@@ -0,0 +1,107 @@
+package com.hunt.peoples.profiles.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Непрозрачные курсоры для keyset-пагинации: base64url(JSON) с ключами последней/первой строки,
+ * направлением и типом каждого значения (чтобы Instant/Long вернулись в том же виде, что отдал Spring Data).
+ */
+final class KeysetCursors {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private KeysetCursors() {
+    }
+
+    /** null/пусто — первая страница */
+    static KeysetScrollPosition decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            JsonNode root = MAPPER.readTree(Base64.getUrlDecoder().decode(cursor));
+            Map<String, Object> keys = new LinkedHashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> it = root.path("k").properties().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> e = it.next();
+                keys.put(e.getKey(), readValue(e.getValue()));
+            }
+            return "B".equals(root.path("d").asText())
+                    ? ScrollPosition.backward(keys)
+                    : ScrollPosition.forward(keys);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    static String encode(KeysetScrollPosition position) {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("d", position.scrollsBackward() ? "B" : "F");
+        ObjectNode k = root.putObject("k");
+        position.getKeys().forEach((name, value) -> k.set(name, writeValue(value)));
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(root.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Курсор на страницу после окна (null — дальше ничего нет) */
+    static String next(Window<?> window, KeysetScrollPosition requested) {
+        if (window.isEmpty()) return null;
+        boolean more = requested.scrollsForward() ? window.hasNext() : true;
+        if (!more) return null;
+        return encode(((KeysetScrollPosition) window.positionAt(window.size() - 1)).forward());
+    }
+
+    /** Курсор на страницу перед окном (null — это первая страница) */
+    static String prev(Window<?> window, KeysetScrollPosition requested) {
+        if (window.isEmpty()) return null;
+        boolean more = requested.scrollsBackward() ? window.hasNext() : !requested.isInitial();
+        if (!more) return null;
+        return encode(((KeysetScrollPosition) window.positionAt(0)).backward());
+    }
+
+    private static JsonNode writeValue(Object value) {
+        ObjectNode n = MAPPER.createObjectNode();
+        if (value == null) {
+            n.put("t", "null");
+        } else if (value instanceof Instant i) {
+            n.put("t", "instant").put("v", i.toString());
+        } else if (value instanceof Long l) {
+            n.put("t", "long").put("v", l);
+        } else if (value instanceof Integer i) {
+            n.put("t", "int").put("v", i);
+        } else if (value instanceof Double d) {
+            n.put("t", "double").put("v", d);
+        } else if (value instanceof Boolean b) {
+            n.put("t", "bool").put("v", b);
+        } else {
+            n.put("t", "str").put("v", value.toString());
+        }
+        return n;
+    }
+
+    private static Object readValue(JsonNode n) {
+        JsonNode v = n.path("v");
+        return switch (n.path("t").asText()) {
+            case "null" -> null;
+            case "instant" -> Instant.parse(v.asText());
+            case "long" -> v.asLong();
+            case "int" -> v.asInt();
+            case "double" -> v.asDouble();
+            case "bool" -> v.asBoolean();
+            case "str" -> v.asText();
+            default -> throw new IllegalArgumentException("Unknown cursor value type");
+        };
+    }
+}
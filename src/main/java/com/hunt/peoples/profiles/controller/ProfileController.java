@@ -3,11 +3,22 @@ package com.hunt.peoples.profiles.controller;
 import com.hunt.peoples.browser.config.AppProperties;
 import com.hunt.peoples.browser.dto.*;
 import com.hunt.peoples.browser.service.BrowserContainerService;
+import com.hunt.peoples.browser.service.StartAdmissionService;
 import com.hunt.peoples.profiles.dto.*;
 import com.hunt.peoples.profiles.entity.Profile;
 import com.hunt.peoples.profiles.repository.ProfileRepository;
 import com.hunt.peoples.profiles.service.FingerprintGenerator;
 import com.hunt.peoples.profiles.service.FingerprintMonitor;
+import com.hunt.peoples.profiles.service.ProfileArchiveService;
+import com.hunt.peoples.profiles.service.ProfileCache;
+import com.hunt.peoples.profiles.service.ProfileCacheCompactor;
+import com.hunt.peoples.profiles.service.ProfileCleanupJob;
+import com.hunt.peoples.profiles.service.ProfileDiskUsageService;
+import com.hunt.peoples.profiles.service.ProfileEventStream;
+import com.hunt.peoples.profiles.service.ProfileLeaseService;
+import com.hunt.peoples.profiles.service.ProfileStatisticsService;
+import com.hunt.peoples.profiles.service.ProfileTemplateService;
+import com.hunt.peoples.profiles.service.ProfileTransferService;
 import com.hunt.peoples.profiles.service.ProfilesService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -16,11 +27,22 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.persistence.criteria.Predicate;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.Instant;
 import java.text.DecimalFormat;
 import java.util.*;
@@ -35,11 +57,27 @@ public class ProfileController {
 
     private final ProfileRepository profileRepository;
     private final BrowserContainerService browserContainerService;
+    private final StartAdmissionService admissionService;
     private final ProfilesService profilesService;
+    private final ProfileCache profileCache;
+    private final ProfileLeaseService profileLeaseService;
+    private final ProfileDiskUsageService diskUsageService;
+    private final ProfileCacheCompactor cacheCompactor;
+    private final ProfileCleanupJob cleanupJob;
+    private final ProfileArchiveService archiveService;
+    private final ProfileTemplateService templateService;
+    private final ProfileTransferService transferService;
+    private final ProfileEventStream eventStream;
+    private final ProfileStatisticsService statisticsService;
     private final FingerprintMonitor fingerprintMonitor;
     private final FingerprintGenerator fingerprintGenerator;
     private final AppProperties appProperties;
 
+    // Только NOT NULL колонки: keyset-сравнение с NULL теряет строки
+    private static final Set<String> KEYSET_SORT_FIELDS = Set.of("id", "name", "externalKey", "createdAt", "updatedAt");
+
+    private static final int BULK_STATUS_MAX = 1000;
+
     @GetMapping
     @Operation(summary = "Получить все профили с фильтрацией")
     public ResponseEntity<PaginatedResponse<ProfileDTO>> getAllProfiles(
@@ -49,11 +87,10 @@ public class ProfileController {
             @RequestParam(defaultValue = "desc") String sortDirection,
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String platform,
-            @RequestParam(required = false) String search) {
-
-        Sort sort = sortDirection.equalsIgnoreCase("desc") ?
-                Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
-        Pageable pageable = PageRequest.of(page, size, sort);
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "false") boolean keyset,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean approxTotal) {
 
         // Используем спецификации для фильтрации
         Specification<Profile> spec = (root, query, cb) -> {
@@ -68,17 +105,63 @@ public class ProfileController {
             }
 
             if (search != null && !search.trim().isEmpty()) {
-                String searchPattern = "%" + search.toLowerCase() + "%";
+                // lower(col) LIKE '%x%' — попадает в триграммные индексы V5
+                String searchPattern = "%" + escapeLike(search.trim().toLowerCase()) + "%";
                 predicates.add(cb.or(
-                        cb.like(cb.lower(root.get("name")), searchPattern),
-                        cb.like(cb.lower(root.get("externalKey")), searchPattern),
-                        cb.like(cb.lower(root.get("userAgent")), searchPattern)
+                        cb.like(cb.lower(root.get("name")), searchPattern, '\\'),
+                        cb.like(cb.lower(root.get("externalKey")), searchPattern, '\\'),
+                        cb.like(cb.lower(root.get("userAgent")), searchPattern, '\\')
                 ));
             }
 
             return cb.and(predicates.toArray(new Predicate[0]));
         };
 
+        // Keyset-режим: seek по (sortBy, id) без OFFSET и без COUNT(*)
+        if (keyset || cursor != null) {
+            if (!KEYSET_SORT_FIELDS.contains(sortBy)) {
+                return ResponseEntity.badRequest()
+                        .header("X-Error", "Keyset pagination supports sortBy: " + KEYSET_SORT_FIELDS)
+                        .build();
+            }
+            KeysetScrollPosition position;
+            try {
+                position = KeysetCursors.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().header("X-Error", e.getMessage()).build();
+            }
+
+            Sort.Direction direction = sortDirection.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+            Sort keysetSort = "id".equals(sortBy)
+                    ? Sort.by(direction, "id")
+                    : Sort.by(direction, sortBy).and(Sort.by(direction, "id"));
+
+            Window<Profile> window = profileRepository.findBy(spec, q -> q.sortBy(keysetSort).limit(size).scroll(position));
+
+            List<ProfileDTO> content = window.getContent().stream().map(ProfileDTO::fromEntity).toList();
+            String nextCursor = KeysetCursors.next(window, position);
+            PaginatedResponse.PaginatedResponseBuilder<ProfileDTO> builder = PaginatedResponse.<ProfileDTO>builder()
+                    .content(content)
+                    .pageSize(size)
+                    .numberOfElements(content.size())
+                    .empty(content.isEmpty())
+                    .first(position.isInitial())
+                    .last(nextCursor == null)
+                    .nextCursor(nextCursor)
+                    .prevCursor(KeysetCursors.prev(window, position));
+            if (approxTotal) {
+                long total = isUnfiltered(status, platform, search)
+                        ? estimateProfilesCount()
+                        : profileRepository.count(spec);
+                builder.totalElements(total).approximateTotal(true);
+            }
+            return ResponseEntity.ok(builder.build());
+        }
+
+        Sort sort = sortDirection.equalsIgnoreCase("desc") ?
+                Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
+        Pageable pageable = PageRequest.of(page, size, sort);
+
         // Используем спецификацию в запросе
         Page<Profile> profilesPage = profileRepository.findAll(spec, pageable);
         Page<ProfileDTO> dtoPage = ProfileDTO.fromEntityPage(profilesPage);
@@ -96,10 +179,54 @@ public class ProfileController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/search")
+    @Operation(summary = "Быстрый поиск профилей: сначала префикс externalKey, затем подстрока в name/externalKey/userAgent")
+    public ResponseEntity<List<ProfileDTO>> searchProfiles(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit) {
+
+        String query = q.trim().toLowerCase();
+        if (query.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        int max = Math.max(1, Math.min(limit, 100));
+        String escaped = escapeLike(query);
+
+        Map<Long, Profile> found = new LinkedHashMap<>();
+        profileRepository.searchByExternalKeyPrefix(escaped, max).forEach(p -> found.put(p.getId(), p));
+
+        // Триграммы работают от 3 символов; на коротком запросе хватает префиксного поиска
+        if (found.size() < max && query.length() >= 3) {
+            profileRepository.searchBySubstring(escaped, query, max)
+                    .forEach(p -> found.putIfAbsent(p.getId(), p));
+        }
+
+        return ResponseEntity.ok(found.values().stream()
+                .limit(max)
+                .map(ProfileDTO::fromEntity)
+                .toList());
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static boolean isUnfiltered(String status, String platform, String search) {
+        return (status == null || status.isBlank())
+                && (platform == null || platform.isBlank())
+                && (search == null || search.isBlank());
+    }
+
+    // pg_class.reltuples: мгновенная оценка вместо COUNT(*) (-1 — таблица ещё не анализировалась)
+    private long estimateProfilesCount() {
+        Long estimate = profileRepository.estimateCount();
+        return estimate != null && estimate >= 0 ? estimate : profileRepository.count();
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Получить профиль по ID")
     public ResponseEntity<ProfileDTO> getProfileById(@PathVariable Long id) {
-        return profileRepository.findById(id)
+        return profileCache.findById(id)
                 .map(ProfileDTO::fromEntity)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -108,7 +235,7 @@ public class ProfileController {
     @GetMapping("/external/{externalKey}")
     @Operation(summary = "Получить профиль по externalKey")
     public ResponseEntity<ProfileDTO> getProfileByExternalKey(@PathVariable String externalKey) {
-        return profileRepository.findByExternalKey(externalKey)
+        return profileCache.findByExternalKey(externalKey)
                 .map(ProfileDTO::fromEntity)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -145,6 +272,29 @@ public class ProfileController {
         }
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Массовое создание профилей (батчевые INSERT)")
+    public ResponseEntity<BulkCreateProfilesResponse> bulkCreateProfiles(
+            @Valid @RequestBody BulkCreateProfilesRequest request) {
+        log.info("Bulk creating {} profiles", request.getProfiles().size());
+
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(profilesService.bulkCreateProfiles(request.getProfiles()));
+
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid bulk create request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .header("X-Error", e.getMessage())
+                    .build();
+        } catch (Exception e) {
+            log.error("Failed to bulk create profiles: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .header("X-Error", e.getMessage())
+                    .build();
+        }
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Обновить профиль")
     public ResponseEntity<ProfileDTO> updateProfile(
@@ -165,14 +315,27 @@ public class ProfileController {
                         changed = true;
                     }
 
-                    if (request.getStatus() != null && !request.getStatus().equals(profile.getStatus())) {
+                    boolean statusChanged = request.getStatus() != null
+                            && !request.getStatus().equals(profile.getStatus());
+                    if (statusChanged) {
                         profile.setStatus(request.getStatus());
                         changed = true;
                     }
 
+                    if (request.getChromePreset() != null
+                            && !request.getChromePreset().equalsIgnoreCase(String.valueOf(profile.getChromePreset()))) {
+                        profile.setChromePreset(request.getChromePreset().toUpperCase());
+                        changed = true;
+                    }
+
                     if (changed) {
                         profile.setUpdatedAt(Instant.now());
                         Profile updated = profileRepository.save(profile);
+                        if (statusChanged) {
+                            // status JPA не обновляет (updatable = false) — отдельным UPDATE
+                            profilesService.updateProfileStatus(id, request.getStatus());
+                        }
+                        profileCache.invalidate(id);
                         log.info("Updated profile: {}", id);
                         return ResponseEntity.ok(ProfileDTO.fromEntity(updated));
                     } else {
@@ -237,9 +400,10 @@ public class ProfileController {
                 profile = profilesService.restoreProfileDirectory(id);
             }
 
-            // Запускаем браузер
-            BrowserStartResult result = browserContainerService.startBrowser(
-                    profile, proxyOverride);
+            // Запускаем браузер (слот запуска занимается только здесь)
+            Profile toStart = profile;
+            BrowserStartResult result = admissionService.withStartSlot(
+                    () -> browserContainerService.startBrowser(toStart, proxyOverride));
 
             // Обновляем статус профиля
             profilesService.updateProfileStatus(id, "BUSY");
@@ -259,6 +423,15 @@ public class ProfileController {
         } catch (ProfileNotFoundException e) {
             log.error("Profile not found: {}", id);
             return ResponseEntity.notFound().build();
+        } catch (StartAdmissionService.StartRejectedException e) {
+            log.warn("Start of profile {} rejected: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getDecision().retryAfterSeconds()))
+                    .header("X-Error", e.getMessage())
+                    .body(BrowserOpenResponse.builder()
+                            .profileId(id)
+                            .error(e.getMessage())
+                            .build());
         } catch (RuntimeException e) {
             log.error("Failed to start browser for profile {}: {}", id, e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -275,13 +448,11 @@ public class ProfileController {
         log.info("Stopping browser for profile: {}", id);
 
         try {
+            String holder = profilesService.getLeaseHolder(id);
             browserContainerService.stopBrowser(id);
 
-            // Обновляем статус профиля через сервис
-            profilesService.updateProfileStatus(id, "FREE");
-
-            // Снимаем блокировку пользователя
-            profilesService.unlockProfile(id);
+            // Статус FREE + снятие блокировки одним условным UPDATE (только если держатель не сменился)
+            profilesService.unlockProfile(id, holder);
 
             return ResponseEntity.ok().build();
 
@@ -291,10 +462,324 @@ public class ProfileController {
         }
     }
 
+    @PostMapping("/{id}/lease")
+    @Operation(summary = "Арендовать профиль (атомарный захват с TTL)")
+    public ResponseEntity<ProfileLeaseResponse> acquireLease(
+            @PathVariable Long id,
+            @RequestParam String userId,
+            @RequestParam(required = false) Long ttlSeconds) {
+
+        return profileLeaseService.acquire(id, userId, ttlSeconds != null ? Duration.ofSeconds(ttlSeconds) : null)
+                .map(lease -> ResponseEntity.ok(toLeaseResponse(lease)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT)
+                        .header("X-Error", "Profile is leased by another user or does not exist")
+                        .build());
+    }
+
+    @PostMapping("/{id}/lease/heartbeat")
+    @Operation(summary = "Продлить аренду профиля")
+    public ResponseEntity<ProfileLeaseResponse> heartbeatLease(
+            @PathVariable Long id,
+            @RequestParam String userId,
+            @RequestParam(required = false) Long ttlSeconds) {
+
+        return profileLeaseService.heartbeat(id, userId, ttlSeconds != null ? Duration.ofSeconds(ttlSeconds) : null)
+                .map(lease -> ResponseEntity.ok(toLeaseResponse(lease)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT)
+                        .header("X-Error", "Lease lost: expired, released or held by another user")
+                        .build());
+    }
+
+    @DeleteMapping("/{id}/lease")
+    @Operation(summary = "Освободить аренду профиля")
+    public ResponseEntity<Void> releaseLease(@PathVariable Long id, @RequestParam String userId) {
+        if (profileLeaseService.release(id, userId)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header("X-Error", "Profile is not leased by " + userId)
+                .build();
+    }
+
+    @PostMapping("/{id}/archive")
+    @Operation(summary = "Перенести свободный профиль в холодный архив")
+    public ResponseEntity<Void> archiveProfile(@PathVariable Long id) {
+        Profile profile = profileRepository.findById(id).orElse(null);
+        if (profile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            if (archiveService.archive(profile)) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header("X-Error", "Profile is busy, already archived or has no directory")
+                    .build();
+        } catch (Exception e) {
+            log.error("Failed to archive profile {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .header("X-Error", e.getMessage())
+                    .build();
+        }
+    }
+
+    @PostMapping("/{id}/template")
+    @Operation(summary = "Снять эталонную директорию для новых профилей с остановленного профиля")
+    public ResponseEntity<Map<String, String>> captureTemplate(@PathVariable Long id) {
+        Profile profile = profileCache.findById(id).orElse(null);
+        if (profile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (browserContainerService.isBrowserRunning(id) || profile.getUserDataPath() == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header("X-Error", "Profile must be stopped and have a directory")
+                    .build();
+        }
+        try {
+            var path = templateService.capture(Paths.get(profile.getUserDataPath()));
+            return ResponseEntity.ok(Map.of(
+                    "version", templateService.currentVersion(),
+                    "path", path.toString()));
+        } catch (Exception e) {
+            log.error("Failed to capture template from profile {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .header("X-Error", e.getMessage())
+                    .build();
+        }
+    }
+
+    @GetMapping("/{id}/export")
+    @Operation(summary = "Выгрузить профиль (строка, куки, директория) одним zip-потоком")
+    public ResponseEntity<StreamingResponseBody> exportProfile(
+            @PathVariable Long id,
+            @RequestParam(required = false) String after) {
+
+        ProfileTransferService.ExportSource source;
+        try {
+            source = transferService.prepareExport(id).orElse(null);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("X-Error", e.getMessage()).build();
+        }
+        if (source == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        StreamingResponseBody body = out -> transferService.writeExport(source, after, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"profile_" + id + ".zip\"")
+                .body(body);
+    }
+
+    @PostMapping(value = "/import", consumes = {"application/zip", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(summary = "Принять архив профиля (возобновляемо по importId)")
+    public ResponseEntity<ProfileImportResponse> importProfile(
+            @RequestParam String importId,
+            InputStream body) {
+        try {
+            ProfileTransferService.ImportStatus status = transferService.importArchive(importId, body);
+            HttpStatus code = "IMPORTED".equals(status.state()) ? HttpStatus.CREATED : HttpStatus.ACCEPTED;
+            return ResponseEntity.status(code).body(toImportResponse(status));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().header("X-Error", e.getMessage()).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("X-Error", e.getMessage()).build();
+        }
+    }
+
+    @GetMapping("/import/{importId}")
+    @Operation(summary = "Статус незавершённого импорта профиля")
+    public ResponseEntity<ProfileImportResponse> getImportStatus(@PathVariable String importId) {
+        try {
+            return transferService.getImportStatus(importId)
+                    .map(status -> ResponseEntity.ok(toImportResponse(status)))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().header("X-Error", e.getMessage()).build();
+        }
+    }
+
+    @DeleteMapping("/import/{importId}")
+    @Operation(summary = "Отменить импорт и удалить принятые файлы")
+    public ResponseEntity<Void> abortImport(@PathVariable String importId) {
+        try {
+            return transferService.abortImport(importId)
+                    ? ResponseEntity.noContent().build()
+                    : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().header("X-Error", e.getMessage()).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("X-Error", e.getMessage()).build();
+        }
+    }
+
+    private static ProfileImportResponse toImportResponse(ProfileTransferService.ImportStatus status) {
+        return ProfileImportResponse.builder()
+                .importId(status.importId())
+                .state(status.state())
+                .profileId(status.profileId())
+                .externalKey(status.externalKey())
+                .filesReceived(status.filesReceived())
+                .lastEntry(status.lastEntry())
+                .error(status.error())
+                .build();
+    }
+
+    private static ProfileLeaseResponse toLeaseResponse(ProfileLeaseService.Lease lease) {
+        return ProfileLeaseResponse.builder()
+                .profileId(lease.profileId())
+                .holder(lease.holder())
+                .expiresAt(lease.expiresAt())
+                .build();
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "SSE-поток событий профилей (альтернатива WebSocket /ws/profiles/events)")
+    public ResponseEntity<SseEmitter> streamProfileEvents(
+            @RequestParam(required = false) String profileId,
+            @RequestParam(required = false) String externalKey,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String state) {
+
+        ProfileEventStream.Filter filter;
+        try {
+            filter = ProfileEventStream.Filter.parse(profileId, externalKey, userId, state);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().header("X-Error", e.getMessage()).build();
+        }
+
+        // без таймаута: соединение держат heartbeat'ы, закрывает клиент
+        SseEmitter emitter = new SseEmitter(0L);
+        ProfileEventStream.Subscriber subscriber = eventStream.subscribe(filter, new ProfileEventStream.Sink() {
+            @Override
+            public void send(String type, String json) throws IOException {
+                emitter.send(SseEmitter.event().name(type).data(json, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void ping() throws IOException {
+                emitter.send(SseEmitter.event().comment("ping"));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(() -> eventStream.unsubscribe(subscriber));
+        emitter.onTimeout(() -> eventStream.unsubscribe(subscriber));
+        emitter.onError(e -> eventStream.unsubscribe(subscriber));
+        return ResponseEntity.ok(emitter);
+    }
+
+    @GetMapping("/status")
+    @Operation(summary = "Статусы пачки профилей (ids/externalKeys через запятую), поддерживает If-None-Match")
+    public ResponseEntity<BulkStatusResponse> getBulkStatusGet(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) List<String> externalKeys,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return bulkStatus(ids, externalKeys, ifNoneMatch);
+    }
+
+    @PostMapping("/status/bulk")
+    @Operation(summary = "Статусы пачки профилей (для длинных списков), поддерживает If-None-Match")
+    public ResponseEntity<BulkStatusResponse> getBulkStatus(
+            @RequestBody BulkStatusRequest request,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return bulkStatus(request.getProfileIds(), request.getExternalKeys(), ifNoneMatch);
+    }
+
+    /**
+     * Ответ собирается из ProfileCache (промахи — одним запросом на ids и одним на ключи)
+     * и реестра контейнеров в памяти, без docker inspect на каждый профиль. Поэтому
+     * isBrowserRunning здесь — «зарегистрирован», а uptime и размер директории не отдаются:
+     * иначе ETag менялся бы каждую минуту.
+     */
+    private ResponseEntity<BulkStatusResponse> bulkStatus(List<Long> ids, List<String> externalKeys,
+                                                          String ifNoneMatch) {
+        List<Long> idList = ids != null ? ids : List.of();
+        List<String> keyList = externalKeys != null ? externalKeys : List.of();
+        if (idList.isEmpty() && keyList.isEmpty()) {
+            return ResponseEntity.badRequest().header("X-Error", "ids or externalKeys required").build();
+        }
+        if (idList.size() + keyList.size() > BULK_STATUS_MAX) {
+            return ResponseEntity.badRequest()
+                    .header("X-Error", "Too many profiles, max " + BULK_STATUS_MAX)
+                    .build();
+        }
+
+        Map<Long, Profile> byId = profileCache.findAllById(idList);
+        Map<String, Profile> byKey = profileCache.findAllByExternalKey(keyList);
+
+        Map<Long, Profile> ordered = new LinkedHashMap<>();
+        List<Long> notFoundIds = new ArrayList<>();
+        List<String> notFoundKeys = new ArrayList<>();
+        for (Long id : idList) {
+            Profile p = byId.get(id);
+            if (p != null) ordered.putIfAbsent(id, p);
+            else if (id != null) notFoundIds.add(id);
+        }
+        for (String key : keyList) {
+            Profile p = byKey.get(key);
+            if (p != null) ordered.putIfAbsent(p.getId(), p);
+            else if (key != null) notFoundKeys.add(key);
+        }
+
+        String hostBaseUrl = appProperties.getHostBaseUrl();
+        List<ProfileStatusResponse> items = new ArrayList<>(ordered.size());
+        StringBuilder fingerprint = new StringBuilder(ordered.size() * 64);
+        for (Profile p : ordered.values()) {
+            Optional<ContainerInfo> container = browserContainerService.getContainerInfo(p.getId());
+            ProfileStatusResponse item = ProfileStatusResponse.builder()
+                    .profileId(p.getId())
+                    .externalKey(p.getExternalKey())
+                    .status(p.getStatus())
+                    .isBrowserRunning(container.isPresent())
+                    .lastUsedAt(p.getLastUsedAt())
+                    .detectionRisk(p.getDetectionRisk())
+                    .detectionLevel(p.getDetectionLevel())
+                    .build();
+            container.ifPresent(c -> {
+                item.setContainerId(c.getContainerId());
+                item.setVncUrl(buildVncUrl(hostBaseUrl, c.getHostVncPort()));
+                item.setDevToolsUrl(buildDevToolsUrl(hostBaseUrl, c.getHostDevToolsPort()));
+            });
+            items.add(item);
+
+            fingerprint.append(p.getId()).append('|').append(p.getStatus()).append('|')
+                    .append(p.getLastUsedAt()).append('|').append(p.getDetectionLevel()).append('|')
+                    .append(p.getDetectionRisk()).append('|').append(item.getContainerId()).append('\n');
+        }
+        fingerprint.append(notFoundIds).append(notFoundKeys);
+
+        String etag = "\"" + DigestUtils.md5DigestAsHex(fingerprint.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        if (etagMatches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+
+        BulkStatusResponse response = BulkStatusResponse.builder()
+                .profiles(items)
+                .notFoundIds(notFoundIds)
+                .notFoundExternalKeys(notFoundKeys)
+                .build();
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(response);
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
     @GetMapping("/{id}/status")
     @Operation(summary = "Получить статус профиля и контейнера")
     public ResponseEntity<ProfileStatusResponse> getProfileStatus(@PathVariable Long id) {
-        return profileRepository.findById(id)
+        return profileCache.findById(id)
                 .map(profile -> {
                     boolean isRunning = browserContainerService.isBrowserRunning(id);
                     var containerInfo = browserContainerService.getContainerInfo(id);
@@ -375,11 +860,18 @@ public class ProfileController {
                     Thread.currentThread().interrupt();
                 }
 
-                browserContainerService.startBrowser(updated, proxyUrl);
+                // перезапуск — настоящий старт: тот же слот, что у /start
+                admissionService.withStartSlot(() -> browserContainerService.startBrowser(updated, proxyUrl));
             }
 
             return ResponseEntity.ok(ProfileDTO.fromEntity(updated));
 
+        } catch (StartAdmissionService.StartRejectedException e) {
+            log.warn("Restart of profile {} after fingerprint rotation rejected: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getDecision().retryAfterSeconds()))
+                    .header("X-Error", e.getMessage())
+                    .build();
         } catch (RuntimeException e) {
             log.error("Failed to rotate fingerprint for profile {}: {}", id, e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -401,6 +893,12 @@ public class ProfileController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/containers/resource-usage")
+    @Operation(summary = "RSS/CPU активных контейнеров с разбивкой по пресетам Chrome")
+    public ResponseEntity<ContainerResourceReport> getContainersResourceUsage() {
+        return ResponseEntity.ok(browserContainerService.collectResourceUsage());
+    }
+
     @GetMapping("/active")
     @Operation(summary = "Получить активные профили")
     public ResponseEntity<List<ProfileDTO>> getActiveProfiles() {
@@ -422,57 +920,78 @@ public class ProfileController {
     @GetMapping("/statistics")
     @Operation(summary = "Получить статистику по профилям")
     public ResponseEntity<ProfileSummaryStatistics> getProfilesStatistics() {
-        long total = profileRepository.count();
-        long active = profilesService.countByStatus("BUSY");
-        long free = profilesService.countByStatus("FREE");
-        long highRisk = profileRepository.findByDetectionRiskGreaterThanEqual(0.7).size();
-
-        Map<String, Long> platformDistribution = profileRepository.findAll().stream()
-                .filter(p -> p.getPlatform() != null)
-                .collect(Collectors.groupingBy(
-                        Profile::getPlatform,
-                        Collectors.counting()
-                ));
-
-        Map<String, Long> levelDistribution = profileRepository.findAll().stream()
-                .filter(p -> p.getDetectionLevel() != null)
-                .collect(Collectors.groupingBy(
-                        Profile::getDetectionLevel,
-                        Collectors.counting()
-                ));
-
-        ProfileSummaryStatistics statistics = ProfileSummaryStatistics.builder()
-                .totalProfiles(total)
-                .activeProfiles(active)
-                .freeProfiles(free)
-                .highRiskProfiles(highRisk)
-                .platformDistribution(platformDistribution)
-                .levelDistribution(levelDistribution)
-                .generatedAt(Instant.now())
-                .build();
-
-        return ResponseEntity.ok(statistics);
+        return ResponseEntity.ok(statisticsService.getProfileSummary());
     }
 
     @GetMapping("/{id}/disk-usage")
     @Operation(summary = "Получить размер профиля на диске")
     public ResponseEntity<DiskUsageResponse> getProfileDiskUsage(@PathVariable Long id) {
-        return profileRepository.findById(id)
-                .map(profile -> {
-                    long sizeBytes = profilesService.getProfileDirectorySize(id);
-                    boolean exists = profilesService.profileDirectoryExists(id);
+        return profileCache.findById(id)
+                .flatMap(profile -> diskUsageService.getUsage(id)
+                        .map(usage -> ResponseEntity.ok(toDiskUsageResponse(usage, profile.getExternalKey()))))
+                .orElse(ResponseEntity.notFound().build());
+    }
 
-                    DiskUsageResponse response = DiskUsageResponse.builder()
-                            .profileId(id)
-                            .externalKey(profile.getExternalKey())
-                            .sizeBytes(sizeBytes)
-                            .sizeHuman(readableFileSize(sizeBytes))
-                            .directoryExists(exists)
-                            .build();
+    @GetMapping("/disk-usage")
+    @Operation(summary = "Занятое место на диске по всем профилям")
+    public ResponseEntity<DiskUsageSummaryResponse> getFleetDiskUsage(
+            @RequestParam(defaultValue = "20") int top) {
+
+        ProfileDiskUsageService.Summary summary = diskUsageService.getSummary(top);
+        return ResponseEntity.ok(DiskUsageSummaryResponse.builder()
+                .totalBytes(summary.totalBytes())
+                .totalHuman(readableFileSize(summary.totalBytes()))
+                .totalFiles(summary.totalFiles())
+                .profileCount(summary.profileCount())
+                .lastFullScanAt(summary.lastFullScanAt())
+                .largest(summary.largest().stream()
+                        .map(u -> toDiskUsageResponse(u, null))
+                        .toList())
+                .build());
+    }
 
-                    return ResponseEntity.ok(response);
-                })
-                .orElse(ResponseEntity.notFound().build());
+    @PostMapping("/cache-compaction")
+    @Operation(summary = "Урезать кэши Chrome остановленных профилей до квоты")
+    public ResponseEntity<CacheCompactionResponse> compactCaches() {
+        return cacheCompactor.compactAll("MANUAL")
+                .map(report -> ResponseEntity.ok(toCompactionResponse(report)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT)
+                        .header("X-Error", "Cache compaction is already running")
+                        .build());
+    }
+
+    @GetMapping("/cache-compaction")
+    @Operation(summary = "Результат последнего прохода компактора кэшей")
+    public ResponseEntity<CacheCompactionResponse> getLastCompaction() {
+        return cacheCompactor.getLastReport()
+                .map(report -> ResponseEntity.ok(toCompactionResponse(report)))
+                .orElse(ResponseEntity.noContent().build());
+    }
+
+    private CacheCompactionResponse toCompactionResponse(ProfileCacheCompactor.Report report) {
+        return CacheCompactionResponse.builder()
+                .trigger(report.trigger())
+                .profilesScanned(report.profilesScanned())
+                .profilesTrimmed(report.profilesTrimmed())
+                .filesDeleted(report.filesDeleted())
+                .bytesReclaimed(report.bytesReclaimed())
+                .reclaimedHuman(readableFileSize(report.bytesReclaimed()))
+                .quotaBytes(report.quotaBytes())
+                .startedAt(report.startedAt())
+                .durationMs(report.durationMs())
+                .build();
+    }
+
+    private DiskUsageResponse toDiskUsageResponse(ProfileDiskUsageService.Usage usage, String externalKey) {
+        return DiskUsageResponse.builder()
+                .profileId(usage.profileId())
+                .externalKey(externalKey)
+                .sizeBytes(usage.sizeBytes())
+                .sizeHuman(readableFileSize(usage.sizeBytes()))
+                .fileCount(usage.fileCount())
+                .directoryExists(usage.directoryExists())
+                .scannedAt(usage.scannedAt())
+                .build();
     }
 
     @PostMapping("/{id}/restore-directory")
@@ -520,8 +1039,10 @@ public class ProfileController {
                     profilesService.restoreProfileDirectory(profileId);
                 }
 
-                var result = browserContainerService.startBrowser(profile, request.getProxyUrl());
-                profilesService.updateProfileStatus(profileId, "BUSY");
+                // в пачке слот занимает каждый запуск отдельно; отказ — failed с причиной, идём дальше
+                var result = admissionService.withStartSlot(
+                        () -> browserContainerService.startBrowser(profile, request.getProxyUrl()));
+                profilesService.updateProfileStatusAsync(profileId, "BUSY");
 
                 results.add(BatchStartResult.success(profileId, result.vncUrl()));
                 successCount++;
@@ -533,6 +1054,9 @@ public class ProfileController {
             }
         }
 
+        // статусы из цикла ушли в write-behind очередь — дописываем до ответа
+        profilesService.flushStatusUpdates();
+
         BatchStartResponse response = BatchStartResponse.builder()
                 .total(request.getProfileIds().size())
                 .successCount(successCount)
@@ -557,9 +1081,9 @@ public class ProfileController {
 
         for (Long profileId : profileIds) {
             try {
+                String holder = profilesService.getLeaseHolder(profileId);
                 browserContainerService.stopBrowser(profileId);
-                profilesService.updateProfileStatus(profileId, "FREE");
-                profilesService.unlockProfile(profileId);
+                profilesService.unlockProfile(profileId, holder);
 
                 results.add(BatchStopResult.success(profileId));
                 successCount++;
@@ -571,6 +1095,9 @@ public class ProfileController {
             }
         }
 
+        // статусы, поставленные stopBrowser в write-behind очередь, — дописываем до ответа
+        profilesService.flushStatusUpdates();
+
         BatchStopResponse response = BatchStopResponse.builder()
                 .total(profileIds.size())
                 .successCount(successCount)
@@ -616,6 +1143,56 @@ public class ProfileController {
         }
     }
 
+    @PostMapping("/cleanup-old/jobs")
+    @Operation(summary = "Запустить фоновую очистку старых профилей")
+    public ResponseEntity<CleanupJobResponse> startCleanupJob(@RequestParam(defaultValue = "30") int days) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(toCleanupJobResponse(cleanupJob.start(days)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().header("X-Error", e.getMessage()).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("X-Error", e.getMessage()).build();
+        }
+    }
+
+    @GetMapping("/cleanup-old/jobs/current")
+    @Operation(summary = "Прогресс фоновой очистки")
+    public ResponseEntity<CleanupJobResponse> getCleanupJob() {
+        return cleanupJob.getProgress()
+                .map(p -> ResponseEntity.ok(toCleanupJobResponse(p)))
+                .orElse(ResponseEntity.noContent().build());
+    }
+
+    @DeleteMapping("/cleanup-old/jobs/current")
+    @Operation(summary = "Отменить фоновую очистку")
+    public ResponseEntity<CleanupJobResponse> cancelCleanupJob() {
+        if (!cleanupJob.cancel()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header("X-Error", "No cleanup job is running")
+                    .build();
+        }
+        return cleanupJob.getProgress()
+                .map(p -> ResponseEntity.status(HttpStatus.ACCEPTED).body(toCleanupJobResponse(p)))
+                .orElse(ResponseEntity.noContent().build());
+    }
+
+    private static CleanupJobResponse toCleanupJobResponse(ProfileCleanupJob.Progress p) {
+        return CleanupJobResponse.builder()
+                .state(p.getState())
+                .daysThreshold(p.getDays())
+                .candidates(p.getCandidates())
+                .deletedCount(p.getDeletedRows())
+                .skippedCount(p.getSkipped())
+                .directoriesDeleted(p.getDirectoriesDeleted())
+                .directoryFailures(p.getDirectoryFailures())
+                .profilesPerSecond(p.profilesPerSecond())
+                .cancelRequested(p.isCancelRequested())
+                .error(p.getError())
+                .startedAt(p.getStartedAt())
+                .finishedAt(p.getFinishedAt())
+                .build();
+    }
+
 //    @GetMapping("/available-devices")
 //    @Operation(summary = "Получить список доступных типов устройств")
 //    public ResponseEntity<List<DeviceTypeInfo>> getAvailableDeviceTypes() {
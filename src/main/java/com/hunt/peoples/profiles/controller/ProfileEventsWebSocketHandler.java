@@ -0,0 +1,70 @@
+package com.hunt.peoples.profiles.controller;
+
+import com.hunt.peoples.profiles.service.ProfileEventStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * WebSocket /ws/profiles/events?profileId=1,2&externalKey=..&userId=..&state=READY,FREE
+ * Каждое событие — один text frame с JSON ProfileLifecycleEvent. Клиент только слушает.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProfileEventsWebSocketHandler extends TextWebSocketHandler {
+
+    private static final String SUBSCRIBER_ATTR = "profileEventSubscriber";
+
+    private final ProfileEventStream eventStream;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams();
+        ProfileEventStream.Filter filter;
+        try {
+            filter = ProfileEventStream.Filter.parse(params.getFirst("profileId"), params.getFirst("externalKey"),
+                    params.getFirst("userId"), params.getFirst("state"));
+        } catch (IllegalArgumentException e) {
+            session.close(CloseStatus.BAD_DATA.withReason(e.getMessage()));
+            return;
+        }
+
+        ProfileEventStream.Subscriber subscriber = eventStream.subscribe(filter, new ProfileEventStream.Sink() {
+            @Override
+            public void send(String type, String json) throws IOException {
+                session.sendMessage(new TextMessage(json));
+            }
+
+            @Override
+            public void ping() throws IOException {
+                session.sendMessage(new PingMessage(ByteBuffer.allocate(0)));
+            }
+
+            @Override
+            public void close() {
+                try {
+                    if (session.isOpen()) session.close(CloseStatus.POLICY_VIOLATION.withReason("Too slow"));
+                } catch (IOException ignored) {
+                }
+            }
+        });
+        session.getAttributes().put(SUBSCRIBER_ATTR, subscriber);
+        log.debug("Profile events WebSocket {} subscribed with {}", session.getId(), filter);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        eventStream.unsubscribe((ProfileEventStream.Subscriber) session.getAttributes().remove(SUBSCRIBER_ATTR));
+    }
+}
@@ -42,6 +42,7 @@ public class ProfileDTO {
     // Настройки браузера
     private String userDataPath;
     private String proxyUrl;
+    private String chromePreset;
 
     // Fingerprint - основные параметры
     private String userAgent;
@@ -116,6 +117,7 @@ public class ProfileDTO {
                 .isActive(profile.getIsActive())
                 .userDataPath(profile.getUserDataPath())
                 .proxyUrl(profile.getProxyUrl())
+                .chromePreset(profile.getChromePreset())
                 .userAgent(profile.getUserAgent())
                 .platform(profile.getPlatform())
                 .screenWidth(profile.getScreenWidth())
@@ -23,7 +23,9 @@ import java.util.Map;
 public class FingerprintCheck {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // та же последовательность, что в DEFAULT партиционированной таблицы (V6), шаг 50 — см. V7
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fingerprint_checks_id_gen")
+    @SequenceGenerator(name = "fingerprint_checks_id_gen", sequenceName = "fingerprint_checks_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -1,12 +1,15 @@
 package com.hunt.peoples.profiles.entity;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
@@ -20,6 +23,7 @@ import java.security.MessageDigest;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,7 +40,9 @@ import java.util.regex.Pattern;
 public class Profile implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled-последовательность: id выдаются пачками по 50, INSERT'ы уходят JDBC-батчами (IDENTITY батчинг отключает)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "profiles_id_gen")
+    @SequenceGenerator(name = "profiles_id_gen", sequenceName = "profiles_seq", allocationSize = 50)
     private Long id;
 
     // === БАЗОВЫЕ ПОЛЯ ПРОФИЛЯ ===
@@ -52,15 +58,40 @@ public class Profile implements Serializable {
     @Column(name = "proxy_url")
     private String proxyUrl;
 
+    // status / last_used_at / locked_by_user_id / lease_expires_at JPA только вставляет:
+    // аренду меняют условные UPDATE ProfileLeaseService, status / last_used_at — ещё и
+    // ProfileStatusWriter (пропускает строки с живой чужой арендой), чтобы ни save()
+    // устаревшей сущности, ни запоздавший статус не затирали чужую аренду
     @Builder.Default
+    @Column(updatable = false)
     private String status = "FREE";
 
-    @Column(name = "last_used_at")
+    @Column(name = "last_used_at", updatable = false)
     private Instant lastUsedAt;
 
-    @Column(name = "locked_by_user_id")
+    @Column(name = "locked_by_user_id", updatable = false)
     private String lockedByUserId;
 
+    @Column(name = "lease_expires_at", updatable = false)
+    private Instant leaseExpiresAt;
+
+    @Version
+    private Long version;
+
+    // Архив холодного профиля (ProfileArchiveService); пишется только его UPDATE'ами
+    @Column(name = "archive_path", length = 1024, insertable = false, updatable = false)
+    private String archivePath;
+
+    @Column(name = "archived_at", insertable = false, updatable = false)
+    private Instant archivedAt;
+
+    @Column(name = "archive_size_bytes", insertable = false, updatable = false)
+    private Long archiveSizeBytes;
+
+    // Пресет флагов Chrome: DENSE, BALANCED, INTERACTIVE (null — глобальный browser.chrome.performance-preset)
+    @Column(name = "chrome_preset")
+    private String chromePreset;
+
 
     // === БАЗОВЫЙ FINGERPRINT ===
 
@@ -234,10 +265,7 @@ public class Profile implements Serializable {
     @Column(columnDefinition = "TEXT", name = "common_websites_json")
     private String commonWebsitesJson;
 
-
-    // === ДОБАВЬТЕ ЭТО ПОЛЕ СЮДА ===
-    @Column(name = "cookies_json", columnDefinition = "TEXT")
-    private String cookiesJson;
+    // Куки вынесены в profile_cookies (ProfileCookieStore), чтобы строка профиля оставалась маленькой
 
     // === ВЕРСИИ И МЕТАДАННЫЕ ===
 
@@ -378,6 +406,13 @@ public class Profile implements Serializable {
     @Column(columnDefinition = "TEXT", name = "speech_voices_json")
     private String speechVoicesJson;
 
+    // Разобранные JSON-колонки (ключ — имя поля); сбрасываются сами, когда меняется строка колонки
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final transient Map<String, ProfileJsonCodec.Parsed> parsedJson = new ConcurrentHashMap<>();
+
     // === ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ===
 
     /**
@@ -385,14 +420,7 @@ public class Profile implements Serializable {
      */
     @Transient
     public DeviceProfile getDeviceProfile() {
-        try {
-            if (deviceProfileJson != null && !deviceProfileJson.isEmpty() && !deviceProfileJson.equals("null")) {
-                return new ObjectMapper().readValue(deviceProfileJson, DeviceProfile.class);
-            }
-        } catch (Exception e) {
-            log.error("Failed to parse deviceProfileJson for profile {}", id, e);
-        }
-        return null;
+        return readJson("deviceProfileJson", deviceProfileJson, ProfileJsonCodec.DEVICE_PROFILE, null);
     }
 
     /**
@@ -401,7 +429,7 @@ public class Profile implements Serializable {
     @Transient
     public void setDeviceProfile(DeviceProfile deviceProfile) {
         try {
-            this.deviceProfileJson = new ObjectMapper().writeValueAsString(deviceProfile);
+            this.deviceProfileJson = ProfileJsonCodec.write(deviceProfile);
 
             // Автоматически заполняем базовые поля
             if (deviceProfile != null) {
@@ -430,17 +458,7 @@ public class Profile implements Serializable {
      */
     @Transient
     public List<String> getFontsList() {
-        try {
-            if (fontsListJson != null && !fontsListJson.isEmpty() && !fontsListJson.equals("null")) {
-                return new ObjectMapper().readValue(
-                        fontsListJson,
-                        new TypeReference<List<String>>() {}
-                );
-            }
-        } catch (Exception e) {
-            log.error("Failed to parse fontsListJson for profile {}", id, e);
-        }
-        return new ArrayList<>();
+        return readList("fontsListJson", fontsListJson, ProfileJsonCodec.STRING_LIST);
     }
 
     /**
@@ -449,7 +467,7 @@ public class Profile implements Serializable {
     @Transient
     public void setFontsList(List<String> fonts) {
         try {
-            this.fontsListJson = new ObjectMapper().writeValueAsString(fonts);
+            this.fontsListJson = ProfileJsonCodec.write(fonts);
         } catch (Exception e) {
             log.error("Failed to serialize fontsList for profile {}", id, e);
             this.fontsListJson = "[]";
@@ -461,17 +479,7 @@ public class Profile implements Serializable {
      */
     @Transient
     public Map<String, Object> getBatteryInfo() {
-        try {
-            if (batteryInfoJson != null && !batteryInfoJson.isEmpty() && !batteryInfoJson.equals("null")) {
-                return new ObjectMapper().readValue(
-                        batteryInfoJson,
-                        new TypeReference<Map<String, Object>>() {}
-                );
-            }
-        } catch (Exception e) {
-            log.error("Failed to parse batteryInfoJson for profile {}", id, e);
-        }
-        return new HashMap<>();
+        return parseJsonToMap("batteryInfoJson", batteryInfoJson);
     }
 
     /**
@@ -480,7 +488,7 @@ public class Profile implements Serializable {
     @Transient
     public void setBatteryInfo(Map<String, Object> batteryInfo) {
         try {
-            this.batteryInfoJson = new ObjectMapper().writeValueAsString(batteryInfo);
+            this.batteryInfoJson = ProfileJsonCodec.write(batteryInfo);
 
             // Автоматически заполняем поля
             if (batteryInfo != null) {
@@ -500,7 +508,7 @@ public class Profile implements Serializable {
      */
     @Transient
     public Map<String, Object> getConnectionInfo() {
-        return parseJsonToMap(connectionInfoJson);
+        return parseJsonToMap("connectionInfoJson", connectionInfoJson);
     }
 
     /**
@@ -509,7 +517,7 @@ public class Profile implements Serializable {
     @Transient
     public void setConnectionInfo(Map<String, Object> connectionInfo) {
         try {
-            this.connectionInfoJson = new ObjectMapper().writeValueAsString(connectionInfo);
+            this.connectionInfoJson = ProfileJsonCodec.write(connectionInfo);
 
             if (connectionInfo != null) {
                 this.connectionDownlink = ((Number) connectionInfo.getOrDefault("downlink", 10.0)).doubleValue();
@@ -529,7 +537,7 @@ public class Profile implements Serializable {
      */
     @Transient
     public Map<String, Object> getWebglExtensions() {
-        return parseJsonToMap(webglExtensionsJson);
+        return parseJsonToMap("webglExtensionsJson", webglExtensionsJson);
     }
 
     /**
@@ -538,7 +546,7 @@ public class Profile implements Serializable {
     @Transient
     public void setWebglExtensions(Map<String, Object> extensions) {
         try {
-            this.webglExtensionsJson = new ObjectMapper().writeValueAsString(extensions);
+            this.webglExtensionsJson = ProfileJsonCodec.write(extensions);
         } catch (Exception e) {
             log.error("Failed to serialize webglExtensions for profile {}", id, e);
             this.webglExtensionsJson = "{}";
@@ -550,17 +558,7 @@ public class Profile implements Serializable {
      */
     @Transient
     public List<Map<String, Object>> getPlugins() {
-        try {
-            if (pluginsJson != null && !pluginsJson.isEmpty() && !pluginsJson.equals("null")) {
-                return new ObjectMapper().readValue(
-                        pluginsJson,
-                        new TypeReference<List<Map<String, Object>>>() {}
-                );
-            }
-        } catch (Exception e) {
-            log.error("Failed to parse pluginsJson for profile {}", id, e);
-        }
-        return new ArrayList<>();
+        return readList("pluginsJson", pluginsJson, ProfileJsonCodec.MAP_LIST);
     }
 
     /**
@@ -569,7 +567,7 @@ public class Profile implements Serializable {
     @Transient
     public void setPlugins(List<Map<String, Object>> plugins) {
         try {
-            this.pluginsJson = new ObjectMapper().writeValueAsString(plugins);
+            this.pluginsJson = ProfileJsonCodec.write(plugins);
         } catch (Exception e) {
             log.error("Failed to serialize plugins for profile {}", id, e);
             this.pluginsJson = "[]";
@@ -581,17 +579,7 @@ public class Profile implements Serializable {
      */
     @Transient
     public List<Map<String, Object>> getMediaDevices() {
-        try {
-            if (mediaDevicesJson != null && !mediaDevicesJson.isEmpty() && !mediaDevicesJson.equals("null")) {
-                return new ObjectMapper().readValue(
-                        mediaDevicesJson,
-                        new TypeReference<List<Map<String, Object>>>() {}
-                );
-            }
-        } catch (Exception e) {
-            log.error("Failed to parse mediaDevicesJson for profile {}", id, e);
-        }
-        return new ArrayList<>();
+        return readList("mediaDevicesJson", mediaDevicesJson, ProfileJsonCodec.MAP_LIST);
     }
 
     /**
@@ -600,7 +588,7 @@ public class Profile implements Serializable {
     @Transient
     public void setMediaDevices(List<Map<String, Object>> devices) {
         try {
-            this.mediaDevicesJson = new ObjectMapper().writeValueAsString(devices);
+            this.mediaDevicesJson = ProfileJsonCodec.write(devices);
         } catch (Exception e) {
             log.error("Failed to serialize mediaDevices for profile {}", id, e);
             this.mediaDevicesJson = "[]";
@@ -612,7 +600,7 @@ public class Profile implements Serializable {
      */
     @Transient
     public Map<String, Object> getNavigatorInfo() {
-        return parseJsonToMap(navigatorInfoJson);
+        return parseJsonToMap("navigatorInfoJson", navigatorInfoJson);
     }
 
     /**
@@ -621,7 +609,7 @@ public class Profile implements Serializable {
     @Transient
     public void setNavigatorInfo(Map<String, Object> navigatorInfo) {
         try {
-            this.navigatorInfoJson = new ObjectMapper().writeValueAsString(navigatorInfo);
+            this.navigatorInfoJson = ProfileJsonCodec.write(navigatorInfo);
 
             if (navigatorInfo != null) {
                 this.cookieEnabled = (Boolean) navigatorInfo.getOrDefault("cookieEnabled", true);
@@ -640,15 +628,19 @@ public class Profile implements Serializable {
     @Transient
     // Добавьте это в класс Profile.java
     public List<String> getCommonWebsites() {
-        if (this.commonWebsitesJson == null || this.commonWebsitesJson.isBlank()) {
+        String json = this.commonWebsitesJson;
+        if (json == null || json.isBlank()) {
             return List.of();
         }
         try {
             // Если это JSON массив ["site1", "site2"]
-            return new ObjectMapper().readValue(this.commonWebsitesJson, new TypeReference<List<String>>() {});
+            return ProfileJsonCodec.cached(parsedJson, "commonWebsitesJson", json,
+                    j -> Collections.unmodifiableList(ProfileJsonCodec.STRING_LIST.<List<String>>readValue(j)));
         } catch (Exception e) {
             // Если там просто строка через запятую
-            return Arrays.asList(this.commonWebsitesJson.split("\\s*,\\s*"));
+            List<String> sites = List.of(json.split("\\s*,\\s*"));
+            ProfileJsonCodec.remember(parsedJson, "commonWebsitesJson", json, sites);
+            return sites;
         }
     }
 
@@ -658,7 +650,7 @@ public class Profile implements Serializable {
     @Transient
     public void setCommonWebsites(List<String> websites) {
         try {
-            this.commonWebsitesJson = new ObjectMapper().writeValueAsString(websites);
+            this.commonWebsitesJson = ProfileJsonCodec.write(websites);
         } catch (Exception e) {
             this.commonWebsitesJson = "[]";
         }
@@ -669,7 +661,7 @@ public class Profile implements Serializable {
      */
     @Transient
     public Map<String, Object> getAudioFingerprint() {
-        return parseJsonToMap(audioFingerprintJson);
+        return parseJsonToMap("audioFingerprintJson", audioFingerprintJson);
     }
 
     /**
@@ -678,7 +670,7 @@ public class Profile implements Serializable {
     @Transient
     public void setAudioFingerprint(Map<String, Object> audioFingerprint) {
         try {
-            this.audioFingerprintJson = new ObjectMapper().writeValueAsString(audioFingerprint);
+            this.audioFingerprintJson = ProfileJsonCodec.write(audioFingerprint);
         } catch (Exception e) {
             log.error("Failed to serialize audioFingerprint for profile {}", id, e);
             this.audioFingerprintJson = "{}";
@@ -929,20 +921,44 @@ public class Profile implements Serializable {
     }
 
     /**
-     * Вспомогательный метод для парсинга JSON в Map
+     * Вспомогательный метод для парсинга JSON в Map (результат неизменяемый и кэшируется до смены колонки)
      */
-    private Map<String, Object> parseJsonToMap(String json) {
+    private Map<String, Object> parseJsonToMap(String column, String json) {
+        if (ProfileJsonCodec.isBlank(json)) return Map.of();
         try {
-            if (json != null && !json.isEmpty() && !json.equals("null")) {
-                return new ObjectMapper().readValue(
-                        json,
-                        new TypeReference<Map<String, Object>>() {}
-                );
-            }
+            return ProfileJsonCodec.cached(parsedJson, column, json,
+                    j -> Collections.unmodifiableMap(ProfileJsonCodec.MAP.<Map<String, Object>>readValue(j)));
+        } catch (Exception e) {
+            log.error("Failed to parse {} for profile {}: {}", column, id, e.getMessage());
+            ProfileJsonCodec.remember(parsedJson, column, json, Map.of());
+            return Map.of();
+        }
+    }
+
+    /**
+     * Вспомогательный метод для парсинга JSON-массива (результат неизменяемый и кэшируется до смены колонки)
+     */
+    private <T> List<T> readList(String column, String json, ObjectReader reader) {
+        if (ProfileJsonCodec.isBlank(json)) return List.of();
+        try {
+            return ProfileJsonCodec.cached(parsedJson, column, json,
+                    j -> Collections.unmodifiableList(reader.<List<T>>readValue(j)));
+        } catch (Exception e) {
+            log.error("Failed to parse {} for profile {}", column, id, e);
+            ProfileJsonCodec.remember(parsedJson, column, json, List.of());
+            return List.of();
+        }
+    }
+
+    private <T> T readJson(String column, String json, ObjectReader reader, T empty) {
+        if (ProfileJsonCodec.isBlank(json)) return empty;
+        try {
+            return ProfileJsonCodec.cached(parsedJson, column, json, reader::readValue);
         } catch (Exception e) {
-            log.error("Failed to parse JSON to Map: {}", e.getMessage());
+            log.error("Failed to parse {} for profile {}", column, id, e);
+            ProfileJsonCodec.remember(parsedJson, column, json, empty);
+            return empty;
         }
-        return new HashMap<>();
     }
 
     /**
@@ -951,7 +967,7 @@ public class Profile implements Serializable {
     private String mapToJson(Map<String, Object> map) {
         try {
             if (map != null && !map.isEmpty()) {
-                return new ObjectMapper().writeValueAsString(map);
+                return ProfileJsonCodec.write(map);
             }
         } catch (Exception e) {
             log.error("Failed to serialize Map to JSON: {}", e.getMessage());
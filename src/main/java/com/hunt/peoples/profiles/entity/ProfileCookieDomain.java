@@ -0,0 +1,49 @@
+package com.hunt.peoples.profiles.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Куки профиля, разложенные по доменам: одна строка = один домен.
+ * Содержимое — gzip(JSON-массив куки из Network.getAllCookies), грузится только при старте/остановке браузера,
+ * поэтому строка profiles остаётся маленькой. contentHash позволяет переписывать только изменившиеся домены.
+ */
+@Entity
+@Table(name = "profile_cookies",
+        uniqueConstraints = @UniqueConstraint(name = "uk_profile_cookies_profile_domain", columnNames = {"profile_id", "domain"}),
+        indexes = @Index(name = "idx_profile_cookies_profile", columnList = "profile_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProfileCookieDomain {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "profile_id", nullable = false)
+    private Long profileId;
+
+    // домен без ведущей точки, в нижнем регистре
+    @Column(name = "domain", nullable = false)
+    private String domain;
+
+    @Column(name = "cookies_gz", nullable = false)
+    private byte[] cookiesGz;
+
+    // SHA-256 несжатого (отсортированного) JSON
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "cookie_count")
+    private Integer cookieCount;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,75 @@
+package com.hunt.peoples.profiles.entity;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Общий (потокобезопасный) Jackson для JSON-колонок Profile и мемоизация разобранных значений.
+ *
+ * Раньше каждый getFontsList()/getPlugins()/... создавал новый ObjectMapper и парсил строку заново.
+ * Теперь ObjectReader'ы создаются один раз, а результат разбора кэшируется в самом Profile
+ * до тех пор, пока ссылка на исходную строку колонки не поменяется (любой сеттер = инвалидация).
+ */
+final class ProfileJsonCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static final ObjectReader STRING_LIST = MAPPER.readerFor(new TypeReference<List<String>>() {});
+    static final ObjectReader MAP = MAPPER.readerFor(new TypeReference<Map<String, Object>>() {});
+    static final ObjectReader MAP_LIST = MAPPER.readerFor(new TypeReference<List<Map<String, Object>>>() {});
+    static final ObjectReader DEVICE_PROFILE = MAPPER.readerFor(DeviceProfile.class);
+
+    private static final ObjectWriter WRITER = MAPPER.writer();
+
+    private ProfileJsonCodec() {
+    }
+
+    /** Разобранное значение + строка, из которой оно получено */
+    record Parsed(String source, Object value) {
+    }
+
+    @FunctionalInterface
+    interface Parser<T> {
+        T parse(String json) throws IOException;
+    }
+
+    /**
+     * Значение из кэша, если колонка не менялась (сравнение ссылок — дёшево и достаточно:
+     * Hibernate и сеттеры всегда кладут новый String), иначе разбор и запоминание.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T cached(Map<String, Parsed> cache, String column, String json, Parser<T> parser) throws IOException {
+        if (cache == null) {
+            return parser.parse(json);
+        }
+        Parsed p = cache.get(column);
+        if (p != null && p.source() == json) {
+            return (T) p.value();
+        }
+        T value = parser.parse(json);
+        cache.put(column, new Parsed(json, value));
+        return value;
+    }
+
+    /** Запомнить значение для строки (например, пустой результат после ошибки разбора) */
+    static void remember(Map<String, Parsed> cache, String column, String json, Object value) {
+        if (cache != null) {
+            cache.put(column, new Parsed(json, value));
+        }
+    }
+
+    static boolean isBlank(String json) {
+        return json == null || json.isEmpty() || json.equals("null");
+    }
+
+    static String write(Object value) throws JsonProcessingException {
+        return WRITER.writeValueAsString(value);
+    }
+}
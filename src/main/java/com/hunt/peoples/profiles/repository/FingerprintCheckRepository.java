@@ -1,8 +1,12 @@
 package com.hunt.peoples.profiles.repository;
 
 import com.hunt.peoples.profiles.entity.FingerprintCheck;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -37,10 +41,13 @@ public interface FingerprintCheckRepository extends JpaRepository<FingerprintChe
             "AND fc.checkedAt = (SELECT MAX(fc2.checkedAt) FROM FingerprintCheck fc2 WHERE fc2.profile.id = :profileId)")
     Optional<FingerprintCheck> findLatestCheckByProfileId(@Param("profileId") Long profileId);
 
-    @Query("SELECT COUNT(fc) FROM FingerprintCheck fc WHERE fc.profile.id = :profileId")
+    // Считается по суточным агрегатам fingerprint_check_daily, сырые строки не читаются
+    @Query(value = "SELECT CAST(COALESCE(SUM(checks_count), 0) AS bigint) FROM fingerprint_check_daily WHERE profile_id = :profileId",
+            nativeQuery = true)
     Long countByProfileId(@Param("profileId") Long profileId);
 
-    @Query("SELECT AVG(fc.overallRisk) FROM FingerprintCheck fc WHERE fc.profile.id = :profileId")
+    @Query(value = "SELECT CAST(SUM(risk_sum) / NULLIF(SUM(checks_count), 0) AS double precision) " +
+            "FROM fingerprint_check_daily WHERE profile_id = :profileId", nativeQuery = true)
     Double getAverageRiskByProfileId(@Param("profileId") Long profileId);
 
     @Modifying
@@ -48,4 +55,32 @@ public interface FingerprintCheckRepository extends JpaRepository<FingerprintChe
     void deleteOldChecks(@Param("date") Instant date);
 
     Page<FingerprintCheck> findByProfileId(Long profileId, Pageable pageable);
+
+    /** Keyset-окно истории проверок (индекс profile_id, checked_at) */
+    Window<FingerprintCheck> findWindowByProfileId(Long profileId, ScrollPosition position, Sort sort, Limit limit);
+
+    // === Агрегаты для дашборда (без загрузки сущностей) ===
+
+    @Query("SELECT COUNT(fc) AS total, AVG(COALESCE(fc.overallRisk, 0.0)) AS averageRisk FROM FingerprintCheck fc " +
+            "WHERE fc.checkedAt >= :startDate AND fc.checkedAt <= :endDate")
+    CheckTotals getCheckTotalsBetween(@Param("startDate") Instant startDate,
+                                      @Param("endDate") Instant endDate);
+
+    @Query("SELECT COALESCE(fc.riskLevel, 'UNKNOWN') AS key, COUNT(fc) AS count FROM FingerprintCheck fc " +
+            "WHERE fc.checkedAt >= :startDate AND fc.checkedAt <= :endDate GROUP BY COALESCE(fc.riskLevel, 'UNKNOWN')")
+    List<GroupCount> countByRiskLevelBetween(@Param("startDate") Instant startDate,
+                                             @Param("endDate") Instant endDate);
+
+    /** День считается в часовом поясе :tz (раньше группировали по ZoneId.systemDefault() в Java) */
+    @Query(value = "SELECT to_char(checked_at AT TIME ZONE :tz, 'YYYY-MM-DD') AS key, COUNT(*) AS count " +
+            "FROM fingerprint_checks WHERE checked_at >= :startDate AND checked_at <= :endDate GROUP BY 1",
+            nativeQuery = true)
+    List<GroupCount> countByDayBetween(@Param("startDate") Instant startDate,
+                                       @Param("endDate") Instant endDate,
+                                       @Param("tz") String tz);
+
+    interface CheckTotals {
+        Long getTotal();
+        Double getAverageRisk();
+    }
 }
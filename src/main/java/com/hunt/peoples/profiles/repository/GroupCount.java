@@ -0,0 +1,9 @@
+package com.hunt.peoples.profiles.repository;
+
+/**
+ * Проекция для GROUP BY ... COUNT(*) запросов статистики
+ */
+public interface GroupCount {
+    String getKey();
+    Long getCount();
+}
@@ -0,0 +1,51 @@
+package com.hunt.peoples.profiles.repository;
+
+import com.hunt.peoples.profiles.entity.ProfileCookieDomain;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProfileCookieRepository extends JpaRepository<ProfileCookieDomain, Long> {
+
+    List<ProfileCookieDomain> findByProfileId(Long profileId);
+
+    /** Только домен + хэш, без BLOB — для вычисления дельты */
+    @Query("SELECT c.domain AS domain, c.contentHash AS contentHash FROM ProfileCookieDomain c WHERE c.profileId = :profileId")
+    List<DomainHash> findDomainHashes(@Param("profileId") Long profileId);
+
+    @Query("SELECT COUNT(c) > 0 FROM ProfileCookieDomain c WHERE c.profileId = :profileId")
+    boolean existsForProfile(@Param("profileId") Long profileId);
+
+    @Modifying
+    @Query(value = "INSERT INTO profile_cookies (profile_id, domain, cookies_gz, content_hash, cookie_count, updated_at) " +
+            "VALUES (:profileId, :domain, :cookiesGz, :contentHash, :cookieCount, :updatedAt) " +
+            "ON CONFLICT (profile_id, domain) DO UPDATE SET cookies_gz = EXCLUDED.cookies_gz, " +
+            "content_hash = EXCLUDED.content_hash, cookie_count = EXCLUDED.cookie_count, updated_at = EXCLUDED.updated_at",
+            nativeQuery = true)
+    void upsert(@Param("profileId") Long profileId,
+                @Param("domain") String domain,
+                @Param("cookiesGz") byte[] cookiesGz,
+                @Param("contentHash") String contentHash,
+                @Param("cookieCount") int cookieCount,
+                @Param("updatedAt") Instant updatedAt);
+
+    @Modifying
+    @Query("DELETE FROM ProfileCookieDomain c WHERE c.profileId = :profileId AND c.domain IN :domains")
+    int deleteDomains(@Param("profileId") Long profileId, @Param("domains") Collection<String> domains);
+
+    @Modifying
+    @Query("DELETE FROM ProfileCookieDomain c WHERE c.profileId = :profileId")
+    int deleteByProfileId(@Param("profileId") Long profileId);
+
+    interface DomainHash {
+        String getDomain();
+        String getContentHash();
+    }
+}
@@ -1,12 +1,14 @@
 package com.hunt.peoples.profiles.repository;
 
 import com.hunt.peoples.profiles.entity.Profile;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +29,20 @@ public interface ProfileRepository extends JpaRepository<Profile, Long>, JpaSpec
     @Query("SELECT p FROM Profile p WHERE p.externalKey IN :keys")
     List<Profile> findByExternalKeys(@Param("keys") List<String> keys);
 
+    @Query("SELECT p FROM Profile p WHERE p.status = 'FREE' AND p.archivedAt IS NULL " +
+            "AND p.lastUsedAt < :cutoff AND p.userDataPath IS NOT NULL ORDER BY p.lastUsedAt")
+    List<Profile> findArchiveCandidates(@Param("cutoff") Instant cutoff, Limit limit);
+
+    @Query("SELECT p.id AS id, p.userDataPath AS userDataPath FROM Profile p")
+    List<ProfilePath> findAllUserDataPaths();
+
+    @Query("SELECT p.id AS id, p.userDataPath AS userDataPath FROM Profile p "
+            + "WHERE p.status = :status AND p.userDataPath IS NOT NULL")
+    List<ProfilePath> findUserDataPathsByStatus(@Param("status") String status);
+
+    @Query("SELECT p.externalKey FROM Profile p WHERE p.externalKey IN :keys")
+    List<String> findExistingExternalKeys(@Param("keys") Collection<String> keys);
+
     @Query(value = "SELECT DISTINCT platform FROM profiles", nativeQuery = true)
     List<String> findAllPlatforms();
 
@@ -41,4 +57,42 @@ public interface ProfileRepository extends JpaRepository<Profile, Long>, JpaSpec
     void updateDetectionRisk(@Param("id") Long id, @Param("risk") Double risk);
 
     List<Profile> findByDetectionRiskGreaterThanEqual(Double risk);
-}
\ No newline at end of file
+
+    long countByDetectionRiskGreaterThanEqual(Double risk);
+
+    // === Поиск (индексы V5: pg_trgm + text_pattern_ops) ===
+
+    /** Префикс externalKey; prefix — уже в нижнем регистре и с экранированными %/_ */
+    @Query(value = "SELECT p.* FROM profiles p WHERE lower(p.external_key) LIKE :prefix || '%' ESCAPE '\\' " +
+            "ORDER BY lower(p.external_key) LIMIT :limit", nativeQuery = true)
+    List<Profile> searchByExternalKeyPrefix(@Param("prefix") String prefix, @Param("limit") int limit);
+
+    /** Подстрока в name / externalKey / userAgent, самые похожие первыми */
+    @Query(value = "SELECT p.* FROM profiles p " +
+            "WHERE lower(p.name) LIKE '%' || :q || '%' ESCAPE '\\' " +
+            "OR lower(p.external_key) LIKE '%' || :q || '%' ESCAPE '\\' " +
+            "OR lower(p.user_agent) LIKE '%' || :q || '%' ESCAPE '\\' " +
+            "ORDER BY GREATEST(similarity(lower(p.name), :raw), similarity(lower(p.external_key), :raw)) DESC, p.id DESC " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Profile> searchBySubstring(@Param("q") String q, @Param("raw") String raw, @Param("limit") int limit);
+
+    /** Оценка числа строк из статистики планировщика (для approxTotal в keyset-пагинации) */
+    @Query(value = "SELECT CAST(reltuples AS bigint) FROM pg_class WHERE relname = 'profiles'", nativeQuery = true)
+    Long estimateCount();
+
+    // === Агрегаты для статистики (без загрузки сущностей) ===
+
+    @Query("SELECT p.platform AS key, COUNT(p) AS count FROM Profile p WHERE p.platform IS NOT NULL GROUP BY p.platform")
+    List<GroupCount> countGroupByPlatform();
+
+    @Query("SELECT p.detectionLevel AS key, COUNT(p) AS count FROM Profile p WHERE p.detectionLevel IS NOT NULL GROUP BY p.detectionLevel")
+    List<GroupCount> countGroupByDetectionLevel();
+
+    @Query("SELECT p.status AS key, COUNT(p) AS count FROM Profile p GROUP BY p.status")
+    List<GroupCount> countGroupByStatus();
+
+    interface ProfilePath {
+        Long getId();
+        String getUserDataPath();
+    }
+}
@@ -0,0 +1,95 @@
+package com.hunt.peoples.profiles.service;
+
+import com.hunt.peoples.profiles.dto.ProfileStatistics;
+import com.hunt.peoples.profiles.entity.FingerprintCheck;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Суточные агрегаты проверок fingerprint по профилю (таблица fingerprint_check_daily, день — UTC).
+ * Пополняются в транзакции сохранения каждой проверки; статистика профиля читается только отсюда.
+ * Хранятся столько же, сколько сырые секции (FingerprintPartitionMaintenance).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FingerprintCheckRollups {
+
+    private static final double HIGH_RISK = 0.7;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void record(FingerprintCheck check) {
+        if (check.getProfile() == null || check.getProfile().getId() == null) return;
+
+        Instant checkedAt = check.getCheckedAt() != null ? check.getCheckedAt() : Instant.now();
+        double risk = check.getOverallRisk() != null ? check.getOverallRisk() : 0.0;
+
+        jdbcTemplate.update("""
+                INSERT INTO fingerprint_check_daily AS d
+                    (profile_id, day, checks_count, passed_count, high_risk_count, risk_sum, last_checked_at, last_risk)
+                VALUES (?, ?, 1, ?, ?, ?, ?, ?)
+                ON CONFLICT (profile_id, day) DO UPDATE SET
+                    checks_count    = d.checks_count + 1,
+                    passed_count    = d.passed_count + EXCLUDED.passed_count,
+                    high_risk_count = d.high_risk_count + EXCLUDED.high_risk_count,
+                    risk_sum        = d.risk_sum + EXCLUDED.risk_sum,
+                    last_risk       = CASE WHEN EXCLUDED.last_checked_at >= d.last_checked_at OR d.last_checked_at IS NULL
+                                           THEN EXCLUDED.last_risk ELSE d.last_risk END,
+                    last_checked_at = GREATEST(d.last_checked_at, EXCLUDED.last_checked_at)
+                """,
+                check.getProfile().getId(),
+                LocalDate.ofInstant(checkedAt, ZoneOffset.UTC),
+                Boolean.TRUE.equals(check.getPassed()) ? 1 : 0,
+                risk >= HIGH_RISK ? 1 : 0,
+                risk,
+                Timestamp.from(checkedAt),
+                check.getOverallRisk());
+    }
+
+    public ProfileStatistics getProfileStatistics(Long profileId) {
+        return jdbcTemplate.query("""
+                SELECT CAST(COALESCE(SUM(checks_count), 0) AS bigint)    AS total,
+                       CAST(COALESCE(SUM(passed_count), 0) AS bigint)    AS passed,
+                       CAST(COALESCE(SUM(high_risk_count), 0) AS bigint) AS high_risk,
+                       COALESCE(SUM(risk_sum), 0)                        AS risk_sum,
+                       MAX(last_checked_at)                              AS latest_at,
+                       (SELECT d2.last_risk FROM fingerprint_check_daily d2
+                         WHERE d2.profile_id = ? ORDER BY d2.day DESC LIMIT 1) AS latest_risk
+                FROM fingerprint_check_daily
+                WHERE profile_id = ?
+                """, rs -> {
+            if (!rs.next() || rs.getLong("total") == 0) {
+                return ProfileStatistics.empty(profileId);
+            }
+            long total = rs.getLong("total");
+            long passed = rs.getLong("passed");
+            Timestamp latestAt = rs.getTimestamp("latest_at");
+            double latestRisk = rs.getDouble("latest_risk");
+
+            return ProfileStatistics.builder()
+                    .profileId(profileId)
+                    .totalChecks(total)
+                    .passedChecks(passed)
+                    .failedChecks(total - passed)
+                    .highRiskChecks(rs.getLong("high_risk"))
+                    .passRate((double) passed / total)
+                    .averageRisk(rs.getDouble("risk_sum") / total)
+                    .latestRisk(latestRisk)
+                    .latestCheckTime(latestAt != null ? latestAt.toInstant() : null)
+                    .build();
+        }, profileId, profileId);
+    }
+
+    /** Удалить агрегаты старше даты (UTC) */
+    public int deleteBefore(LocalDate day) {
+        return jdbcTemplate.update("DELETE FROM fingerprint_check_daily WHERE day < ?", day);
+    }
+}
@@ -33,7 +33,7 @@ public class FingerprintGenerator {
 
     private static final String CHROME_MAJOR = "143";
     private static final String CHROME_FULL = "143.0.7486.23";
-    private final org.springframework.web.client.RestTemplate restTemplate = new org.springframework.web.client.RestTemplate();
+    private final org.springframework.web.client.RestTemplate restTemplate;
     private static final String GEO_API_URL = "http://ip-api.com/json/%s?fields=status,message,countryCode,timezone,lat,lon,query";
     // Список популярных DNSBL серверов для проверки репутации IP
     private static final List<String> DNSBL_SERVICES = List.of("zen.spamhaus.org", "dnsbl.sorbs.net");
@@ -95,92 +95,10 @@ public class FingerprintGenerator {
 
     public Profile generateCompleteProfile(String externalKey, String deviceType, String detectionLevel, String proxyUrl) {
         try {
-            DeviceTemplate template = selectTemplateInternal(deviceType);
-            String userAgent = generateUserAgent(template);
-            ClientHintsData clientHints = generateClientHints(template);
-
-            int navbarHeight = 48 + random.nextInt(37);
             // 1. Сначала проверяем прокси и получаем данные о локации
             GeoIpResponse geoData = resolveGeoData(proxyUrl);
 
-            Profile profile = new Profile();
-            profile.setDetectionLevel(detectionLevel != null ? detectionLevel : "ENHANCED");
-
-            // Сначала считаем базовый риск
-            double risk = calculateRiskForDetectionLevel(profile.getDetectionLevel());
-            // Если IP в блэклисте — накидываем штраф
-            if (geoData.isBlacklisted()) {
-                risk += 0.3;
-                log.warn("IP {} is blacklisted! Risk increased.", geoData.getQuery());
-            }
-            profile.setDetectionRisk(Math.min(risk, 1.0)); // Устанавливаем итоговый риск
-            if (geoData.isBlacklisted()) {
-                risk += 0.3; // Увеличиваем риск, если IP "грязный"
-                log.warn("IP {} is blacklisted! Risk increased.", geoData.getQuery());
-            }
-            profile.setDetectionRisk(Math.min(risk, 1.0));
-
-            // 1. БАЗОВЫЕ ПОЛЯ (Системные)
-            profile.setExternalKey(externalKey);
-            profile.setName(template.getMarketingName() + " - " + externalKey);
-            profile.setStatus("FREE");
-            profile.setIsActive(true);
-            profile.setCheckCount(0);
-            profile.setDetectionLevel(detectionLevel != null ? detectionLevel : "ENHANCED");
-            profile.setDetectionRisk(calculateRiskForDetectionLevel(profile.getDetectionLevel()));
-
-            // 2. ЭКРАН (Fingerprint Basics)
-            profile.setUserAgent(userAgent);
-            profile.setPlatform("Linux armv8l");
-            profile.setScreenWidth(template.getWidth());
-            profile.setScreenHeight(template.getHeight());
-            profile.setPixelRatio(template.getPixelRatio());
-            profile.setScreenAvailWidth(template.getWidth());
-            profile.setScreenAvailHeight(template.getHeight() - navbarHeight); // Имитация Navbar
-            profile.setScreenColorDepth(24);
-            profile.setScreenPixelDepth(24);
-            profile.setScreenColorGamut("p3");
-
-            // 3. ЖЕЛЕЗО (Hardware)
-            profile.setHardwareConcurrency(template.getCpuCores() > 0 ? template.getCpuCores() : 8);
-            profile.setDeviceMemory(template.getRam());
-            profile.setMaxTouchPoints(5);
-
-            // 4. ГРАФИКА (WebGL)
-// Заменяем старый блок на вызов метода:
-            fillGpuAndHardware(profile, template);
-
-            profile.setWebglVersion("WebGL 2.0 (OpenGL ES 3.0 Chromium)");
-            profile.setCanvasFingerprint(generateHash("canvas"));
-            profile.setCanvasNoiseHash(generateHash("noise"));
-
-            // 5. CLIENT HINTS (Важно для Chrome)
-            profile.setUaChBrandsJson(clientHints.getBrandsJson());
-            profile.setUaChPlatform("Android");
-            profile.setUaChPlatformVersion(clientHints.getPlatformVersion());
-            profile.setUaChArchitecture("arm");
-            profile.setUaChModel(template.getModel());
-            profile.setUaChMobile(true);
-            profile.setUaChBitness("64");
-
-            // 6. ВЕРСИИ
-            profile.setChromeVersion(CHROME_FULL);
-            profile.setOsVersion(template.getAndroidVerFull());
-            profile.setOsArchitecture("arm64");
-
-            // 7. ЗАПОЛНЕНИЕ ВСЕХ ОСТАЛЬНЫХ ПОЛЕЙ (Объединенный метод)
-            fillRemainingFieldsConsistent(profile, template);
-
-            // МЕТАДАННЫЕ
-            profile.setFingerprintCreatedAt(Instant.now());
-            profile.setFingerprintUpdatedAt(Instant.now());
-            profile.setFingerprintHash(generateHash(profile.getUserAgent() + externalKey));
-
-            // В самом конце перед return:
-            applyLocationData(profile, geoData, proxyUrl);
-
-            log.info("Successfully generated profile for {} (Loc: {})", externalKey, geoData.getTimezone());
-
+            Profile profile = buildProfile(externalKey, deviceType, detectionLevel, proxyUrl, geoData);
 
             // 8. Сохраняем профиль
             Profile savedProfile = profileRepository.save(profile);
@@ -195,6 +113,126 @@ public class FingerprintGenerator {
         }
     }
 
+    /**
+     * Сгенерировать профили для массового создания БЕЗ сохранения (сохраняет вызывающий батчами).
+     * Проверка прокси и GeoIP выполняются один раз на каждый уникальный proxyUrl.
+     */
+    public List<Profile> buildProfiles(List<ProfileSeed> seeds) {
+        Map<String, GeoIpResponse> geoByProxy = new HashMap<>();
+        List<Profile> profiles = new ArrayList<>(seeds.size());
+
+        for (ProfileSeed seed : seeds) {
+            GeoIpResponse geoData = geoByProxy.computeIfAbsent(
+                    seed.proxyUrl() != null ? seed.proxyUrl() : "", this::resolveGeoData);
+            try {
+                Profile profile = buildProfile(seed.externalKey(), seed.deviceType(),
+                        seed.detectionLevel(), seed.proxyUrl(), geoData);
+                if (seed.name() != null && !seed.name().isBlank()) {
+                    profile.setName(seed.name());
+                }
+                profiles.add(profile);
+            } catch (Exception e) {
+                log.error("Generation failed for key: {}", seed.externalKey(), e);
+                throw new RuntimeException("Profile generation error", e);
+            }
+        }
+        return profiles;
+    }
+
+    /** Входные данные одного профиля для buildProfiles (externalKey уже очищен) */
+    public record ProfileSeed(String externalKey, String name, String deviceType,
+                              String detectionLevel, String proxyUrl) {
+    }
+
+    private Profile buildProfile(String externalKey, String deviceType, String detectionLevel,
+                                 String proxyUrl, GeoIpResponse geoData) {
+        DeviceTemplate template = selectTemplateInternal(deviceType);
+        String userAgent = generateUserAgent(template);
+        ClientHintsData clientHints = generateClientHints(template);
+
+        int navbarHeight = 48 + random.nextInt(37);
+
+        Profile profile = new Profile();
+        profile.setDetectionLevel(detectionLevel != null ? detectionLevel : "ENHANCED");
+
+        // Сначала считаем базовый риск
+        double risk = calculateRiskForDetectionLevel(profile.getDetectionLevel());
+        // Если IP в блэклисте — накидываем штраф
+        if (geoData.isBlacklisted()) {
+            risk += 0.3;
+            log.warn("IP {} is blacklisted! Risk increased.", geoData.getQuery());
+        }
+        profile.setDetectionRisk(Math.min(risk, 1.0)); // Устанавливаем итоговый риск
+        if (geoData.isBlacklisted()) {
+            risk += 0.3; // Увеличиваем риск, если IP "грязный"
+            log.warn("IP {} is blacklisted! Risk increased.", geoData.getQuery());
+        }
+        profile.setDetectionRisk(Math.min(risk, 1.0));
+
+        // 1. БАЗОВЫЕ ПОЛЯ (Системные)
+        profile.setExternalKey(externalKey);
+        profile.setName(template.getMarketingName() + " - " + externalKey);
+        profile.setStatus("FREE");
+        profile.setIsActive(true);
+        profile.setCheckCount(0);
+        profile.setDetectionLevel(detectionLevel != null ? detectionLevel : "ENHANCED");
+        profile.setDetectionRisk(calculateRiskForDetectionLevel(profile.getDetectionLevel()));
+
+        // 2. ЭКРАН (Fingerprint Basics)
+        profile.setUserAgent(userAgent);
+        profile.setPlatform("Linux armv8l");
+        profile.setScreenWidth(template.getWidth());
+        profile.setScreenHeight(template.getHeight());
+        profile.setPixelRatio(template.getPixelRatio());
+        profile.setScreenAvailWidth(template.getWidth());
+        profile.setScreenAvailHeight(template.getHeight() - navbarHeight); // Имитация Navbar
+        profile.setScreenColorDepth(24);
+        profile.setScreenPixelDepth(24);
+        profile.setScreenColorGamut("p3");
+
+        // 3. ЖЕЛЕЗО (Hardware)
+        profile.setHardwareConcurrency(template.getCpuCores() > 0 ? template.getCpuCores() : 8);
+        profile.setDeviceMemory(template.getRam());
+        profile.setMaxTouchPoints(5);
+
+        // 4. ГРАФИКА (WebGL)
+// Заменяем старый блок на вызов метода:
+        fillGpuAndHardware(profile, template);
+
+        profile.setWebglVersion("WebGL 2.0 (OpenGL ES 3.0 Chromium)");
+        profile.setCanvasFingerprint(generateHash("canvas"));
+        profile.setCanvasNoiseHash(generateHash("noise"));
+
+        // 5. CLIENT HINTS (Важно для Chrome)
+        profile.setUaChBrandsJson(clientHints.getBrandsJson());
+        profile.setUaChPlatform("Android");
+        profile.setUaChPlatformVersion(clientHints.getPlatformVersion());
+        profile.setUaChArchitecture("arm");
+        profile.setUaChModel(template.getModel());
+        profile.setUaChMobile(true);
+        profile.setUaChBitness("64");
+
+        // 6. ВЕРСИИ
+        profile.setChromeVersion(CHROME_FULL);
+        profile.setOsVersion(template.getAndroidVerFull());
+        profile.setOsArchitecture("arm64");
+
+        // 7. ЗАПОЛНЕНИЕ ВСЕХ ОСТАЛЬНЫХ ПОЛЕЙ (Объединенный метод)
+        fillRemainingFieldsConsistent(profile, template);
+
+        // МЕТАДАННЫЕ
+        profile.setFingerprintCreatedAt(Instant.now());
+        profile.setFingerprintUpdatedAt(Instant.now());
+        profile.setFingerprintHash(generateHash(profile.getUserAgent() + externalKey));
+
+        // В самом конце перед return:
+        applyLocationData(profile, geoData, proxyUrl);
+
+        log.info("Successfully generated profile for {} (Loc: {})", externalKey, geoData.getTimezone());
+
+        return profile;
+    }
+
     @SneakyThrows
     private void fillRemainingFieldsConsistent(Profile profile, DeviceTemplate template) {
         // --- 1. Поведенческие параметры ---
@@ -597,7 +635,7 @@ public class FingerprintGenerator {
             int port = extractPortFromProxy(proxyUrl);
             Proxy proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress(host, port));
 
-            HttpURLConnection conn = (HttpURLConnection) new URL("http://www.google.com/generate_204").openConnection(proxy);
+            HttpURLConnection conn = (HttpURLConnection) URI.create("http://www.google.com/generate_204").toURL().openConnection(proxy);
             conn.setConnectTimeout(5000);
             conn.setReadTimeout(5000);
 
@@ -5,6 +5,7 @@ import com.hunt.peoples.profiles.entity.FingerprintCheck;
 import com.hunt.peoples.profiles.entity.Profile;
 import com.hunt.peoples.profiles.repository.FingerprintCheckRepository;
 import com.hunt.peoples.profiles.repository.ProfileRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -12,10 +13,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import tools.jackson.databind.ObjectMapper;
 
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -28,6 +30,11 @@ public class FingerprintMonitor {
     private final FingerprintCheckRepository checkRepository;
     private final ProfilesService profilesService;
     private final ObjectMapper objectMapper;
+    private final FingerprintCheckRollups checkRollups;
+    private final ProfileCache profileCache;
+    private final PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate checkTx;
 
     private final Map<Long, List<FingerprintCheck>> profileChecksCache = new ConcurrentHashMap<>();
     private final Map<Long, Instant> lastCheckTime = new ConcurrentHashMap<>();
@@ -48,6 +55,11 @@ public class FingerprintMonitor {
     @Value("${fingerprint.monitor.test-urls:https://browserleaks.com/canvas,https://coveryourtracks.eff.org}")
     private List<String> testUrls;
 
+    @PostConstruct
+    public void init() {
+        checkTx = new TransactionTemplate(transactionManager);
+    }
+
     /**
      * Основной метод мониторинга (запускается по расписанию)
      */
@@ -78,7 +90,7 @@ public class FingerprintMonitor {
             }
         }
 
-        cleanupOldData();
+        // Старые проверки удаляются целиком секциями (FingerprintPartitionMaintenance), а не DELETE после каждого цикла
         log.info("Fingerprint monitoring cycle completed");
     }
 
@@ -98,8 +110,12 @@ public class FingerprintMonitor {
         // Выполняем проверки
         FingerprintCheck check = performFingerprintCheck(profile);
 
-        // Сохраняем результат
-        FingerprintCheck savedCheck = checkRepository.save(check);
+        // Сохраняем результат вместе с суточным агрегатом — одной транзакцией, чтобы итоги не расходились
+        FingerprintCheck savedCheck = checkTx.execute(status -> {
+            FingerprintCheck saved = checkRepository.save(check);
+            checkRollups.record(saved);
+            return saved;
+        });
 
         // Кэшируем результат
         profileChecksCache.computeIfAbsent(profile.getId(), k -> new ArrayList<>())
@@ -439,6 +455,7 @@ public class FingerprintMonitor {
         profile.setLastCheckResult(check.getPassed() ? "PASSED" : "FAILED");
 
         profileRepository.save(profile);
+        profileCache.invalidate(profile);
 
         // Логируем результат
         if (check.isHighRisk()) {
@@ -507,21 +524,6 @@ public class FingerprintMonitor {
         return lastCheck.plusMillis(checkIntervalMs).isAfter(Instant.now());
     }
 
-    /**
-     * Очистка старых данных
-     */
-    private void cleanupOldData() {
-        try {
-            Instant thirtyDaysAgo = Instant.now().minus(30, ChronoUnit.DAYS);
-            checkRepository.deleteOldChecks(thirtyDaysAgo);
-
-            log.debug("Cleaned up fingerprint checks older than 30 days");
-
-        } catch (Exception e) {
-            log.error("Error cleaning up old fingerprint checks: {}", e.getMessage(), e);
-        }
-    }
-
     /**
      * Получить историю проверок профиля
      */
@@ -534,36 +536,7 @@ public class FingerprintMonitor {
      * Получить статистику по профилю
      */
     public ProfileStatistics getProfileStatistics(Long profileId) {
-        List<FingerprintCheck> checks = getProfileChecks(profileId);
-
-        if (checks.isEmpty()) {
-            return ProfileStatistics.empty(profileId);
-        }
-
-        long totalChecks = checks.size();
-        long passedChecks = checks.stream().filter(c -> Boolean.TRUE.equals(c.getPassed())).count();
-        long failedChecks = totalChecks - passedChecks;
-        long highRiskChecks = checks.stream().filter(FingerprintCheck::isHighRisk).count();
-
-        double averageRisk = checks.stream()
-                .mapToDouble(c -> c.getOverallRisk() != null ? c.getOverallRisk() : 0.0)
-                .average()
-                .orElse(0.0);
-
-        Optional<FingerprintCheck> latestCheck = checks.stream()
-                .max(Comparator.comparing(FingerprintCheck::getCheckedAt));
-
-        return ProfileStatistics.builder()
-                .profileId(profileId)
-                .totalChecks(totalChecks)
-                .passedChecks(passedChecks)
-                .failedChecks(failedChecks)
-                .highRiskChecks(highRiskChecks)
-                .passRate(totalChecks > 0 ? (double) passedChecks / totalChecks : 0.0)
-                .averageRisk(averageRisk)
-                .latestRisk(latestCheck.map(FingerprintCheck::getOverallRisk).orElse(0.0))
-                .latestCheckTime(latestCheck.map(FingerprintCheck::getCheckedAt).orElse(null))
-                .build();
+        return checkRollups.getProfileStatistics(profileId);
     }
 
     /**
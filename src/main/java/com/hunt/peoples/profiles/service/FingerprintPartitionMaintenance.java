@@ -0,0 +1,130 @@
+package com.hunt.peoples.profiles.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обслуживание секций fingerprint_checks (см. V6):
+ * заранее создаёт месячные секции и удаляет целиком те, что старше retention (DROP вместо DELETE).
+ *
+ * Суточные агрегаты живут ровно столько же, сколько сырые строки: в той же транзакции удаляются
+ * агрегаты за дни до первого сохранённого месяца, иначе счётчики и средние профиля учитывали бы
+ * проверки, которых уже нет.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FingerprintPartitionMaintenance {
+
+    private static final String PARTITION_PREFIX = "fingerprint_checks_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final FingerprintCheckRollups rollups;
+
+    @Value("${fingerprint.checks.retention-days:30}")
+    private int retentionDays;
+
+    @Value("${fingerprint.checks.partitions-ahead:2}")
+    private int monthsAhead;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "fingerprint-partitions");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void init() {
+        // через минуту после старта, дальше каждые 6 часов
+        scheduler.scheduleWithFixedDelay(this::runSafely, 1, 360, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void runSafely() {
+        try {
+            ensureFuturePartitions();
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                dropExpiredPartitions();
+                LocalDate rawFrom = retainedFrom();
+                int removed = rollups.deleteBefore(rawFrom);
+                if (removed > 0) {
+                    log.info("Removed {} fingerprint rollup rows before {}", removed, rawFrom);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Fingerprint partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    /** Текущий месяц + partitions-ahead вперёд */
+    public void ensureFuturePartitions() {
+        YearMonth month = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= monthsAhead; i++) {
+            jdbcTemplate.queryForObject("SELECT ensure_fingerprint_checks_partition(?)::text",
+                    String.class, month.plusMonths(i).atDay(1));
+        }
+    }
+
+    /**
+     * Удаляет секции, у которых верхняя граница старше retention.
+     * Гранулярность — месяц: строки живут от retention-days до retention-days + 1 месяц.
+     */
+    public int dropExpiredPartitions() {
+        LocalDate cutoff = retentionCutoff();
+
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT c.relname
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_class p ON p.oid = i.inhparent
+                WHERE p.relname = 'fingerprint_checks' AND c.relname ~ '^fingerprint_checks_p[0-9]{6}$'
+                """, String.class);
+
+        int dropped = 0;
+        for (String name : partitions) {
+            YearMonth month = YearMonth.parse(name.substring(PARTITION_PREFIX.length()), SUFFIX);
+            LocalDate upperBound = month.plusMonths(1).atDay(1);
+            if (!upperBound.isAfter(cutoff)) {
+                // имя проверено регуляркой выше — безопасно подставлять
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+                dropped++;
+                log.info("Dropped fingerprint_checks partition {} (retention {} days)", name, retentionDays);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Первый день, за который сырые строки ещё хранятся: месяц m остаётся, пока начало
+     * следующего месяца позже cutoff, т.е. начиная с месяца, в который попадает cutoff.
+     */
+    public LocalDate retainedFrom() {
+        return YearMonth.from(retentionCutoff()).atDay(1);
+    }
+
+    private LocalDate retentionCutoff() {
+        return LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays);
+    }
+}
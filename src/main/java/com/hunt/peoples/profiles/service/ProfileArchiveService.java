@@ -0,0 +1,354 @@
+package com.hunt.peoples.profiles.service;
+
+import com.hunt.peoples.profiles.entity.Profile;
+import com.hunt.peoples.profiles.repository.ProfileRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Холодное хранение профилей: директории, не используемые profile.archive.idle-days,
+ * упаковываются потоково в один zip (без пересоздаваемых кэшей Chrome) и удаляются с диска.
+ * startBrowser перед bind'ом тома вызывает restoreIfArchived — архив распаковывается обратно.
+ *
+ * Архивация и старт браузера (restore -> seed -> bind -> регистрация контейнера) идут под одной
+ * блокировкой профиля (profileLock), а профиль с зарегистрированным контейнером не архивируется.
+ *
+ * Порядок при архивации: zip во временный файл -> rename -> отметка в БД -> удаление директории.
+ * Восстановление всегда чистит директорию перед распаковкой, поэтому падение на любом шаге
+ * оставляет либо нетронутый профиль, либо полный архив.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfileArchiveService {
+
+    private static final String MARK_ARCHIVED_SQL = """
+            UPDATE profiles SET archive_path = ?, archived_at = ?, archive_size_bytes = ?
+            WHERE id = ? AND status = 'FREE' AND locked_by_user_id IS NULL AND archived_at IS NULL
+            """;
+
+    private static final String CLEAR_ARCHIVED_SQL = """
+            UPDATE profiles SET archive_path = NULL, archived_at = NULL, archive_size_bytes = NULL
+            WHERE id = ?
+            """;
+
+    private final ProfileRepository profileRepository;
+    private final ProfileCache profileCache;
+    private final ProfileDiskUsageService diskUsageService;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${profile.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${profile.archive.dir:./profiles-archive}")
+    private String archiveDir;
+
+    @Value("${profile.archive.idle-days:21}")
+    private int idleDays;
+
+    @Value("${profile.archive.batch-size:20}")
+    private int batchSize;
+
+    @Value("${profile.archive.sweep-interval-ms:3600000}")
+    private long sweepIntervalMs;
+
+    // Кэши, которые Chrome пересоздаёт сам — в архив не попадают
+    @Value("${profile.archive.exclude:Cache,Code Cache,GPUCache,GrShaderCache,ShaderCache,DawnCache,"
+            + "DawnGraphiteCache,DawnWebGPUCache,GraphiteDawnCache,CacheStorage,ScriptCache,"
+            + "component_crx_cache,Crashpad,optimization_guide_model_store}")
+    private String excludeList;
+
+    private Set<String> excluded;
+    private final ConcurrentHashMap<Long, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    // реестр запущенных контейнеров; BrowserContainerService сам зависит от этого сервиса
+    // и передаёт проверку при инициализации
+    private volatile Predicate<Long> containerRegistered = id -> false;
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "profile-archiver");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Counter archivedCounter;
+    private Counter archivedBytes;
+    private Timer archiveTimer;
+    private Timer restoreTimer;
+
+    @PostConstruct
+    public void init() {
+        excluded = Arrays.stream(excludeList.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+
+        archivedCounter = meterRegistry.counter("profile.archive.archived");
+        archivedBytes = meterRegistry.counter("profile.archive.archived.bytes");
+        archiveTimer = meterRegistry.timer("profile.archive.duration", "op", "archive");
+        restoreTimer = Timer.builder("profile.archive.duration")
+                .tag("op", "restore")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        if (enabled) {
+            sweeper.scheduleWithFixedDelay(this::archiveIdleSafely, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /** Блокировка директории профиля: архивация, восстановление и старт браузера */
+    public ReentrantLock profileLock(Long profileId) {
+        return locks.computeIfAbsent(profileId, id -> new ReentrantLock());
+    }
+
+    public void setContainerRegistry(Predicate<Long> registered) {
+        this.containerRegistered = registered;
+    }
+
+    /**
+     * Заархивировать профили, не используемые idle-days (пачкой batch-size за проход).
+     */
+    public int archiveIdleProfiles() {
+        Instant cutoff = Instant.now().minus(idleDays, ChronoUnit.DAYS);
+        List<Profile> candidates = profileRepository.findArchiveCandidates(cutoff, Limit.of(batchSize));
+
+        int archived = 0;
+        for (Profile profile : candidates) {
+            try {
+                if (archive(profile)) archived++;
+            } catch (Exception e) {
+                log.warn("Failed to archive profile {}: {}", profile.getId(), e.getMessage());
+            }
+        }
+        if (archived > 0) {
+            log.info("Archived {} idle profiles (idle > {} days)", archived, idleDays);
+        }
+        return archived;
+    }
+
+    /**
+     * Упаковать директорию профиля и удалить её. false — профиль занят, уже в архиве или без директории.
+     */
+    public boolean archive(Profile profile) throws IOException {
+        Long profileId = profile.getId();
+        ReentrantLock lock = profileLock(profileId);
+        lock.lock();
+        try {
+            // кандидат мог быть выбран до старта браузера; старт регистрирует контейнер под этой же блокировкой
+            if (containerRegistered.test(profileId)) return false;
+
+            Path source = Paths.get(profile.getUserDataPath()).toAbsolutePath();
+            if (!Files.isDirectory(source)) return false;
+
+            Path dir = Paths.get(archiveDir).toAbsolutePath();
+            Files.createDirectories(dir);
+            Path target = dir.resolve("profile_" + profileId + ".zip");
+            Path tmp = dir.resolve("profile_" + profileId + ".zip.tmp");
+
+            long started = System.nanoTime();
+            writeArchive(source, tmp);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long size = Files.size(target);
+
+            // условие status = 'FREE' — профиль мог стартовать, пока шла упаковка
+            int updated = jdbcTemplate.update(MARK_ARCHIVED_SQL,
+                    target.toString(), Timestamp.from(Instant.now()), size, profileId);
+            if (updated == 0) {
+                Files.deleteIfExists(target);
+                return false;
+            }
+            profileCache.invalidate(profileId);
+
+            if (containerRegistered.test(profileId)) {
+                // не должно случаться при старте через BrowserContainerService, но директорию
+                // запущенного браузера не трогаем ни при каких условиях
+                jdbcTemplate.update(CLEAR_ARCHIVED_SQL, profileId);
+                profileCache.invalidate(profileId);
+                Files.deleteIfExists(target);
+                log.warn("Profile {} started during archiving, archive discarded", profileId);
+                return false;
+            }
+            deleteRecursively(source);
+            diskUsageService.rescanAsync(profileId);
+
+            archiveTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            archivedCounter.increment();
+            archivedBytes.increment(size);
+            log.info("Archived profile {} -> {} ({} bytes)", profileId, target, size);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Если профиль в архиве — распаковать его в userDataPath. Состояние читается из БД,
+     * а не из (возможно кэшированной) сущности. Возвращает время восстановления или null.
+     */
+    public Duration restoreIfArchived(Long profileId, String userDataPath) {
+        String archivePath = findArchivePath(profileId);
+        if (archivePath == null) return null;
+
+        ReentrantLock lock = profileLock(profileId);
+        lock.lock();
+        try {
+            // пока ждали блокировку, профиль мог восстановить другой поток
+            archivePath = findArchivePath(profileId);
+            if (archivePath == null) return null;
+
+            long started = System.nanoTime();
+            Path target = Paths.get(userDataPath).toAbsolutePath();
+            if (Files.exists(target)) {
+                deleteRecursively(target);
+            }
+            Files.createDirectories(target);
+            extractArchive(Paths.get(archivePath), target);
+
+            jdbcTemplate.update(CLEAR_ARCHIVED_SQL, profileId);
+            profileCache.invalidate(profileId);
+            Files.deleteIfExists(Paths.get(archivePath));
+            diskUsageService.rescanAsync(profileId);
+
+            Duration took = Duration.ofNanos(System.nanoTime() - started);
+            restoreTimer.record(took);
+            log.info("Restored archived profile {} in {} ms", profileId, took.toMillis());
+            return took;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to restore archived profile " + profileId, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Каталог из пересоздаваемых кэшей Chrome (profile.archive.exclude) — переносить его незачем */
+    public boolean isRegenerable(String dirName) {
+        return excluded.contains(dirName);
+    }
+
+    private String findArchivePath(Long profileId) {
+        try {
+            return jdbcTemplate.queryForObject(
+                    "SELECT archive_path FROM profiles WHERE id = ? AND archived_at IS NOT NULL",
+                    String.class, profileId);
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    private void archiveIdleSafely() {
+        try {
+            archiveIdleProfiles();
+        } catch (Exception e) {
+            log.warn("Profile archive sweep failed: {}", e.getMessage());
+        }
+    }
+
+    private void writeArchive(Path source, Path zipFile) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(zipFile), 1 << 16))) {
+            zip.setLevel(Deflater.BEST_SPEED);
+
+            Files.walkFileTree(source, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(source) && excluded.contains(dir.getFileName().toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    // симлинки (SingletonLock и т.п.) Chrome создаёт заново
+                    if (!attrs.isRegularFile()) return FileVisitResult.CONTINUE;
+
+                    ZipEntry entry = new ZipEntry(source.relativize(file).toString().replace('\\', '/'));
+                    entry.setLastModifiedTime(attrs.lastModifiedTime());
+                    zip.putNextEntry(entry);
+                    Files.copy(file, zip);
+                    zip.closeEntry();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    log.debug("Skip unreadable file {}: {}", file, exc.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            Files.deleteIfExists(zipFile);
+            throw e;
+        }
+    }
+
+    private void extractArchive(Path zipFile, Path target) throws IOException {
+        try (ZipInputStream zip = new ZipInputStream(
+                new BufferedInputStream(Files.newInputStream(zipFile), 1 << 16))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                Path out = target.resolve(entry.getName()).normalize();
+                if (!out.startsWith(target)) {
+                    throw new IOException("Archive entry outside target dir: " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(out);
+                    continue;
+                }
+                Files.createDirectories(out.getParent());
+                Files.copy(zip, out, StandardCopyOption.REPLACE_EXISTING);
+                if (entry.getLastModifiedTime() != null) {
+                    Files.setLastModifiedTime(out, entry.getLastModifiedTime());
+                }
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.hunt.peoples.profiles.service;
+
+import com.hunt.peoples.profiles.entity.Profile;
+import com.hunt.peoples.profiles.repository.ProfileRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through кэш профилей по id и externalKey (LRU по размеру + TTL).
+ *
+ * Отдаёт один и тот же detached-экземпляр всем читателям — только для путей, которые строят
+ * ответ/DTO. Запуск браузера и любая запись берут свежую сущность из репозитория (у кэшированной
+ * устаревает @Version, а её изменения увидели бы параллельные читатели) и после записи вызывают invalidate(): сразу и ещё раз после коммита транзакции, чтобы
+ * параллельное чтение не успело положить в кэш старую версию. TTL ограничивает устаревание
+ * для записей в обход (JPQL/JDBC).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfileCache {
+
+    private final ProfileRepository profileRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${profile.cache.max-size:10000}")
+    private int maxSize;
+
+    // 0 — кэш выключен
+    @Value("${profile.cache.ttl-ms:30000}")
+    private long ttlMs;
+
+    private final Object lock = new Object();
+    private Map<Long, Entry> byId;
+    private final Map<String, Long> idByKey = new HashMap<>();
+
+    // растёт на каждой инвалидации: загрузка, начатая до неё, в кэш не попадёт
+    private final AtomicLong generation = new AtomicLong();
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        byId = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > maxSize) {
+                    idByKey.remove(eldest.getValue().profile().getExternalKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        hits = meterRegistry.counter("profile.cache.requests", "result", "hit");
+        misses = meterRegistry.counter("profile.cache.requests", "result", "miss");
+        meterRegistry.gauge("profile.cache.size", this, ProfileCache::size);
+        meterRegistry.gauge("profile.cache.hit.ratio", this, ProfileCache::hitRatio);
+    }
+
+    public Optional<Profile> findById(Long id) {
+        if (id == null) return Optional.empty();
+        return lookup(id, () -> profileRepository.findById(id));
+    }
+
+    public Optional<Profile> findByExternalKey(String externalKey) {
+        if (externalKey == null) return Optional.empty();
+        Long id;
+        synchronized (lock) {
+            id = idByKey.get(externalKey);
+        }
+        if (id != null) {
+            return lookup(id, () -> profileRepository.findByExternalKey(externalKey));
+        }
+        misses.increment();
+        return load(() -> profileRepository.findByExternalKey(externalKey));
+    }
+
+    /**
+     * Пакетное чтение по id: попадания из кэша, промахи — одним findAllById.
+     * Отсутствующих в БД id в результате нет.
+     */
+    public Map<Long, Profile> findAllById(Collection<Long> ids) {
+        Map<Long, Profile> found = new HashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            for (Long id : ids) {
+                if (id == null || found.containsKey(id)) continue;
+                Entry e = fresh(byId.get(id), now);
+                if (e != null) {
+                    found.put(id, e.profile());
+                } else {
+                    missing.add(id);
+                }
+            }
+        }
+        hits.increment(found.size());
+        misses.increment(missing.size());
+        if (!missing.isEmpty()) {
+            loadAll(() -> profileRepository.findAllById(missing)).forEach(p -> found.put(p.getId(), p));
+        }
+        return found;
+    }
+
+    /**
+     * Пакетное чтение по externalKey: попадания из кэша, промахи — одним findByExternalKeys.
+     */
+    public Map<String, Profile> findAllByExternalKey(Collection<String> externalKeys) {
+        Map<String, Profile> found = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            for (String key : externalKeys) {
+                if (key == null || found.containsKey(key)) continue;
+                Long id = idByKey.get(key);
+                Entry e = id != null ? fresh(byId.get(id), now) : null;
+                if (e != null) {
+                    found.put(key, e.profile());
+                } else {
+                    missing.add(key);
+                }
+            }
+        }
+        hits.increment(found.size());
+        misses.increment(missing.size());
+        if (!missing.isEmpty()) {
+            loadAll(() -> profileRepository.findByExternalKeys(new ArrayList<>(missing)))
+                    .forEach(p -> found.put(p.getExternalKey(), p));
+        }
+        return found;
+    }
+
+    public void invalidate(Long id) {
+        if (id == null) return;
+        evict(id);
+        afterCommit(() -> evict(id));
+    }
+
+    public void invalidate(Profile profile) {
+        if (profile != null) invalidate(profile.getId());
+    }
+
+    public void invalidateAll() {
+        clear();
+        afterCommit(this::clear);
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return byId.size();
+        }
+    }
+
+    public double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0.0 : hits.count() / total;
+    }
+
+    private Optional<Profile> lookup(Long id, Supplier<Optional<Profile>> loader) {
+        if (ttlMs > 0) {
+            synchronized (lock) {
+                Entry e = byId.get(id);
+                if (e != null) {
+                    if (System.currentTimeMillis() - e.loadedAt() < ttlMs) {
+                        hits.increment();
+                        return Optional.of(e.profile());
+                    }
+                    removeLocked(id);
+                }
+            }
+        }
+        misses.increment();
+        return load(loader);
+    }
+
+    private Optional<Profile> load(Supplier<Optional<Profile>> loader) {
+        long gen = generation.get();
+        Optional<Profile> loaded = loader.get();
+        if (ttlMs <= 0 || loaded.isEmpty() || loaded.get().getId() == null) {
+            return loaded;
+        }
+        Profile p = loaded.get();
+        synchronized (lock) {
+            if (generation.get() == gen) {
+                removeLocked(p.getId());
+                byId.put(p.getId(), new Entry(p, System.currentTimeMillis()));
+                idByKey.put(p.getExternalKey(), p.getId());
+            }
+        }
+        return loaded;
+    }
+
+    private List<Profile> loadAll(Supplier<List<Profile>> loader) {
+        long gen = generation.get();
+        List<Profile> loaded = loader.get();
+        if (ttlMs <= 0 || loaded.isEmpty()) {
+            return loaded;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            if (generation.get() == gen) {
+                for (Profile p : loaded) {
+                    removeLocked(p.getId());
+                    byId.put(p.getId(), new Entry(p, now));
+                    idByKey.put(p.getExternalKey(), p.getId());
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // вызывается под lock
+    private Entry fresh(Entry e, long now) {
+        return e != null && ttlMs > 0 && now - e.loadedAt() < ttlMs ? e : null;
+    }
+
+    private void evict(Long id) {
+        synchronized (lock) {
+            generation.incrementAndGet();
+            removeLocked(id);
+        }
+    }
+
+    private void clear() {
+        synchronized (lock) {
+            generation.incrementAndGet();
+            byId.clear();
+            idByKey.clear();
+        }
+    }
+
+    private void removeLocked(Long id) {
+        Entry e = byId.remove(id);
+        if (e != null) {
+            idByKey.remove(e.profile().getExternalKey(), id);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private record Entry(Profile profile, long loadedAt) {
+    }
+}
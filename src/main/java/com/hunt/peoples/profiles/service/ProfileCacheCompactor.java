@@ -0,0 +1,279 @@
+package com.hunt.peoples.profiles.service;
+
+import com.hunt.peoples.browser.service.BrowserContainerService;
+import com.hunt.peoples.profiles.repository.ProfileRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Квота на кэши Chrome в остановленных профилях.
+ *
+ * Cache, Code Cache, GPUCache, CacheStorage и т.п. растут без ограничений и занимают
+ * большую часть диска. Компактор по расписанию урезает их до profile.cache-quota.max-mb
+ * на профиль, удаляя самые старые файлы первыми. Отдельная проверка раз в минуту
+ * запускает внеочередной проход, если диск заполнен выше high-water-percent; если проход
+ * ничего не освободил, следующий откладывается с удвоением паузы.
+ *
+ * Работает только с FREE-профилями без запущенного контейнера; перед каждым профилем
+ * и периодически во время удаления это перепроверяется. Кэш Chrome переживает пропажу
+ * файлов — отсутствующая запись просто становится промахом.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfileCacheCompactor {
+
+    private static final int RUNNING_RECHECK_EVERY = 200;
+
+    private final ProfileRepository profileRepository;
+    private final BrowserContainerService browserContainerService;
+    private final ProfileDiskUsageService diskUsageService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${profile.cache-quota.enabled:true}")
+    private boolean enabled;
+
+    @Value("${profile.cache-quota.max-mb:200}")
+    private long quotaMb;
+
+    @Value("${profile.cache-quota.interval-ms:21600000}")
+    private long intervalMs;
+
+    @Value("${profile.cache-quota.high-water-percent:85}")
+    private int highWaterPercent;
+
+    @Value("${profile.cache-quota.disk-check-interval-ms:60000}")
+    private long diskCheckIntervalMs;
+
+    // потолок паузы между high-water проходами, которые ничего не освободили
+    @Value("${profile.cache-quota.high-water-max-backoff-ms:3600000}")
+    private long highWaterMaxBackoffMs;
+
+    // каталог, по файловой системе которого считается заполненность диска
+    @Value("${profile.cache-quota.watch-dir:./profiles}")
+    private String watchDir;
+
+    @Value("${profile.cache-quota.cache-dirs:Cache,Code Cache,GPUCache,CacheStorage,GrShaderCache,"
+            + "ShaderCache,DawnCache,DawnGraphiteCache,DawnWebGPUCache,GraphiteDawnCache,ScriptCache}")
+    private String cacheDirList;
+
+    private Set<String> cacheDirs;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicReference<Report> lastReport = new AtomicReference<>();
+
+    // состояние backoff'а трогает только поток scheduler'а
+    private long highWaterBackoffMs;
+    private long highWaterNextAt;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "profile-cache-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Counter reclaimedBytes;
+    private Counter deletedFiles;
+
+    @PostConstruct
+    public void init() {
+        cacheDirs = Arrays.stream(cacheDirList.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+
+        reclaimedBytes = meterRegistry.counter("profile.cache.compaction.reclaimed.bytes");
+        deletedFiles = meterRegistry.counter("profile.cache.compaction.deleted.files");
+
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(() -> runSafely("SCHEDULED"), intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+            scheduler.scheduleWithFixedDelay(this::checkHighWater, diskCheckIntervalMs, diskCheckIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Урезать кэши всех остановленных профилей до квоты. Пусто — проход уже идёт.
+     */
+    public Optional<Report> compactAll(String trigger) {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        try {
+            Instant startedAt = Instant.now();
+            long quotaBytes = quotaMb * 1024 * 1024;
+            int scanned = 0;
+            int trimmed = 0;
+            long files = 0;
+            long bytes = 0;
+
+            for (ProfileRepository.ProfilePath p : profileRepository.findUserDataPathsByStatus("FREE")) {
+                if (browserContainerService.getContainerInfo(p.getId()).isPresent()) continue;
+                scanned++;
+                try {
+                    long[] result = compactProfile(p.getId(), Paths.get(p.getUserDataPath()), quotaBytes);
+                    if (result[0] > 0) {
+                        trimmed++;
+                        files += result[0];
+                        bytes += result[1];
+                        diskUsageService.rescanAsync(p.getId());
+                    }
+                } catch (IOException e) {
+                    log.warn("Cache compaction failed for profile {}: {}", p.getId(), e.getMessage());
+                }
+            }
+
+            Report report = new Report(trigger, scanned, trimmed, files, bytes, quotaBytes, startedAt,
+                    Instant.now().toEpochMilli() - startedAt.toEpochMilli());
+            lastReport.set(report);
+            log.info("Cache compaction ({}): {} profiles scanned, {} trimmed, {} files / {} bytes reclaimed in {} ms",
+                    trigger, scanned, trimmed, files, bytes, report.durationMs());
+            return Optional.of(report);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Optional<Report> getLastReport() {
+        return Optional.ofNullable(lastReport.get());
+    }
+
+    /**
+     * Удалить самые старые файлы кэшей профиля сверх квоты. Возвращает {files, bytes}.
+     */
+    private long[] compactProfile(Long profileId, Path root, long quotaBytes) throws IOException {
+        if (!Files.isDirectory(root)) return new long[]{0, 0};
+
+        List<CacheFile> cacheFiles = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            private int depthInCache = 0;
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (depthInCache > 0 || cacheDirs.contains(dir.getFileName().toString())) depthInCache++;
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                if (depthInCache > 0) depthInCache--;
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (depthInCache > 0 && attrs.isRegularFile()) {
+                    cacheFiles.add(new CacheFile(file, attrs.size(), attrs.lastModifiedTime().toMillis()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        long total = cacheFiles.stream().mapToLong(CacheFile::size).sum();
+        if (total <= quotaBytes) return new long[]{0, 0};
+
+        cacheFiles.sort(Comparator.comparingLong(CacheFile::modifiedAt));
+        long files = 0;
+        long bytes = 0;
+        for (CacheFile f : cacheFiles) {
+            if (total - bytes <= quotaBytes) break;
+            // профиль могли запустить, пока мы удаляем; достаточно реестра — без docker inspect на каждую пачку
+            if (files % RUNNING_RECHECK_EVERY == 0 && browserContainerService.getContainerInfo(profileId).isPresent()) {
+                log.info("Profile {} started during cache compaction, stopping", profileId);
+                break;
+            }
+            try {
+                if (Files.deleteIfExists(f.path())) {
+                    files++;
+                    bytes += f.size();
+                }
+            } catch (IOException e) {
+                log.debug("Cannot delete cache file {}: {}", f.path(), e.getMessage());
+            }
+        }
+
+        deletedFiles.increment(files);
+        reclaimedBytes.increment(bytes);
+        log.debug("Profile {} cache trimmed: {} files, {} bytes (was {} bytes)", profileId, files, bytes, total);
+        return new long[]{files, bytes};
+    }
+
+    private void checkHighWater() {
+        try {
+            FileStore store = Files.getFileStore(Paths.get(watchDir).toAbsolutePath());
+            long total = store.getTotalSpace();
+            if (total <= 0) return;
+            double usedPercent = 100.0 * (total - store.getUsableSpace()) / total;
+            if (usedPercent < highWaterPercent) {
+                highWaterBackoffMs = 0;
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (now < highWaterNextAt) return;
+
+            log.warn("Disk usage {}% is above high-water mark {}%, compacting profile caches",
+                    String.format("%.1f", usedPercent), highWaterPercent);
+            Optional<Report> report = compactAll("HIGH_WATER");
+            if (report.isEmpty()) return;
+
+            // диск занят не кэшами — не гонять полный проход каждую минуту, удваиваем паузу
+            if (report.get().bytesReclaimed() == 0) {
+                highWaterBackoffMs = Math.min(highWaterMaxBackoffMs,
+                        highWaterBackoffMs == 0 ? diskCheckIntervalMs * 2 : highWaterBackoffMs * 2);
+                log.warn("High-water compaction reclaimed nothing, next pass in {} ms", highWaterBackoffMs);
+            } else {
+                highWaterBackoffMs = 0;
+            }
+            highWaterNextAt = now + highWaterBackoffMs;
+        } catch (Exception e) {
+            log.debug("High-water check failed: {}", e.getMessage());
+        }
+    }
+
+    private void runSafely(String trigger) {
+        try {
+            compactAll(trigger);
+        } catch (Exception e) {
+            log.warn("Cache compaction failed: {}", e.getMessage());
+        }
+    }
+
+    private record CacheFile(Path path, long size, long modifiedAt) {
+    }
+
+    public record Report(String trigger, int profilesScanned, int profilesTrimmed, long filesDeleted,
+                         long bytesReclaimed, long quotaBytes, Instant startedAt, long durationMs) {
+    }
+}
@@ -0,0 +1,320 @@
+package com.hunt.peoples.profiles.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Фоновая очистка старых FREE-профилей.
+ *
+ * Кандидаты выбираются в SQL порциями (keyset по id), каждая порция удаляется в своей
+ * короткой транзакции: SELECT ... FOR UPDATE с повторной проверкой status/last_used_at,
+ * затем зависимые строки и DELETE ... RETURNING только для заблокированных id, так что
+ * профиль, захваченный между выборкой и удалением, останется вместе со своими данными. Директории удалённых
+ * строк стираются после коммита в ограниченном пуле (profile.cleanup.delete-threads),
+ * очередь пула ограничена — выборка не убегает вперёд диска.
+ *
+ * Одновременно идёт одна задача; отмена проверяется между порциями, уже удалённые из БД
+ * профили свои директории всё равно дочищают.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfileCleanupJob {
+
+    private static final String SELECT_CHUNK_SQL = """
+            SELECT id FROM profiles
+            WHERE status = 'FREE' AND last_used_at < ? AND id > ?
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    private static final String COUNT_SQL =
+            "SELECT count(*) FROM profiles WHERE status = 'FREE' AND last_used_at < ?";
+
+    // условия перепроверяются под блокировкой: захваченный после выборки профиль не попадёт,
+    // а lease/статус-UPDATE на заблокированной строке дождётся коммита
+    private static final String LOCK_CHUNK_SQL = """
+            SELECT id FROM profiles
+            WHERE id = ANY(?) AND status = 'FREE' AND last_used_at < ?
+            FOR UPDATE
+            """;
+
+    private static final String DELETE_CHUNK_SQL = """
+            DELETE FROM profiles
+            WHERE id = ANY(?)
+            RETURNING id, user_data_path, archive_path
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ProfileCache profileCache;
+    private final ProfileDiskUsageService diskUsageService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${profile.cleanup.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${profile.cleanup.delete-threads:4}")
+    private int deleteThreads;
+
+    private final AtomicReference<Progress> current = new AtomicReference<>();
+    private TransactionTemplate tx;
+    private ThreadPoolExecutor deletePool;
+    private final ExecutorService jobRunner = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "profile-cleanup-job");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Counter deletedCounter;
+    private Counter directoriesCounter;
+    private Timer chunkTimer;
+
+    @PostConstruct
+    public void init() {
+        tx = new TransactionTemplate(transactionManager);
+        int threads = Math.max(1, deleteThreads);
+        // CallerRunsPolicy: при полной очереди поток задачи сам удаляет директорию и притормаживает
+        deletePool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                r -> {
+                    Thread t = new Thread(r, "profile-cleanup-delete");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        deletedCounter = meterRegistry.counter("profile.cleanup.deleted");
+        directoriesCounter = meterRegistry.counter("profile.cleanup.directories.deleted");
+        chunkTimer = meterRegistry.timer("profile.cleanup.chunk.duration");
+        meterRegistry.gauge("profile.cleanup.throughput", this,
+                job -> job.getProgress().map(Progress::profilesPerSecond).orElse(0.0));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Progress p = current.get();
+        if (p != null) p.cancelRequested.set(true);
+        jobRunner.shutdownNow();
+        deletePool.shutdown();
+    }
+
+    /**
+     * Запустить очистку в фоне. IllegalStateException — задача уже идёт.
+     */
+    public Progress start(int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("days must be >= 1");
+        }
+        Progress progress = new Progress(days, Instant.now().minus(days, ChronoUnit.DAYS));
+        Progress previous = current.get();
+        if (previous != null && previous.isRunning()) {
+            throw new IllegalStateException("Cleanup job is already running since " + previous.startedAt);
+        }
+        if (!current.compareAndSet(previous, progress)) {
+            throw new IllegalStateException("Cleanup job is already running");
+        }
+        progress.future = CompletableFuture.runAsync(() -> run(progress), jobRunner);
+        return progress;
+    }
+
+    /** Запустить и дождаться (синхронный POST /cleanup-old) */
+    public Progress runAndWait(int days) {
+        Progress progress = start(days);
+        progress.future.join();
+        return progress;
+    }
+
+    public Optional<Progress> getProgress() {
+        return Optional.ofNullable(current.get());
+    }
+
+    /** Отменить текущую задачу; false — ничего не выполняется */
+    public boolean cancel() {
+        Progress p = current.get();
+        if (p == null || !p.isRunning()) return false;
+        p.cancelRequested.set(true);
+        return true;
+    }
+
+    private void run(Progress progress) {
+        Timestamp cutoff = Timestamp.from(progress.cutoff);
+        try {
+            Long total = jdbcTemplate.queryForObject(COUNT_SQL, Long.class, cutoff);
+            progress.candidates.set(total != null ? total : 0);
+            log.info("Profile cleanup started: {} candidates older than {} days", progress.candidates.get(),
+                    progress.days);
+
+            long lastId = 0;
+            List<Future<?>> deletions = new ArrayList<>();
+            while (!progress.cancelRequested.get()) {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_CHUNK_SQL, Long.class, cutoff, lastId, chunkSize);
+                if (ids.isEmpty()) break;
+                lastId = ids.get(ids.size() - 1);
+
+                long started = System.nanoTime();
+                List<DeletedRow> deleted = deleteChunk(ids, cutoff);
+                chunkTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+
+                progress.deletedRows.addAndGet(deleted.size());
+                progress.skipped.addAndGet(ids.size() - deleted.size());
+                deletedCounter.increment(deleted.size());
+
+                for (DeletedRow row : deleted) {
+                    profileCache.invalidate(row.id());
+                    diskUsageService.forget(row.id());
+                    deletions.add(deletePool.submit(() -> deleteFiles(row, progress)));
+                }
+                deletions.removeIf(Future::isDone);
+            }
+
+            // строки уже удалены — их директории дочищаем даже при отмене
+            for (Future<?> f : deletions) {
+                f.get();
+            }
+            progress.finish(progress.cancelRequested.get() ? "CANCELLED" : "COMPLETED", null);
+        } catch (Exception e) {
+            log.error("Profile cleanup failed: {}", e.getMessage(), e);
+            progress.finish("FAILED", e.getMessage());
+        }
+        log.info("Profile cleanup {}: {} profiles deleted, {} directories removed ({} failed), {} skipped in {} s",
+                progress.state, progress.deletedRows.get(), progress.directoriesDeleted.get(),
+                progress.directoryFailures.get(), progress.skipped.get(), progress.elapsed().toSeconds());
+    }
+
+    private List<DeletedRow> deleteChunk(List<Long> ids, Timestamp cutoff) {
+        Long[] idArray = ids.toArray(new Long[0]);
+        return tx.execute(status -> {
+            Long[] locked = jdbcTemplate.queryForList(LOCK_CHUNK_SQL, Long.class, idArray, cutoff)
+                    .toArray(new Long[0]);
+            if (locked.length == 0) return List.of();
+
+            // зависимые строки без ON DELETE CASCADE — только для профилей, которые точно удаляем
+            jdbcTemplate.update("DELETE FROM profile_cookies WHERE profile_id = ANY(?)", (Object) locked);
+            jdbcTemplate.update("DELETE FROM fingerprint_checks WHERE profile_id = ANY(?)", (Object) locked);
+            jdbcTemplate.update("DELETE FROM fingerprint_check_daily WHERE profile_id = ANY(?)", (Object) locked);
+            return jdbcTemplate.query(DELETE_CHUNK_SQL,
+                    (rs, i) -> new DeletedRow(rs.getLong("id"), rs.getString("user_data_path"),
+                            rs.getString("archive_path")),
+                    (Object) locked);
+        });
+    }
+
+    private void deleteFiles(DeletedRow row, Progress progress) {
+        try {
+            if (row.userDataPath() != null && !row.userDataPath().isBlank()) {
+                Path dir = Paths.get(row.userDataPath());
+                if (Files.exists(dir)) deleteTree(dir);
+            }
+            if (row.archivePath() != null) {
+                Files.deleteIfExists(Paths.get(row.archivePath()));
+            }
+            progress.directoriesDeleted.incrementAndGet();
+            directoriesCounter.increment();
+        } catch (IOException e) {
+            progress.directoryFailures.incrementAndGet();
+            log.warn("Failed to delete files of profile {}: {}", row.id(), e.getMessage());
+        }
+    }
+
+    // один обход дерева: файлы в visitFile, каталог — после его содержимого
+    private static void deleteTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) throw exc;
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private record DeletedRow(Long id, String userDataPath, String archivePath) {
+    }
+
+    /**
+     * Состояние задачи очистки; счётчики читаются контроллером на лету.
+     */
+    public static class Progress {
+        private final int days;
+        private final Instant cutoff;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong candidates = new AtomicLong();
+        private final AtomicLong deletedRows = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong directoriesDeleted = new AtomicLong();
+        private final AtomicLong directoryFailures = new AtomicLong();
+        private final AtomicBoolean cancelRequested = new AtomicBoolean();
+        private volatile String state = "RUNNING";
+        private volatile String error;
+        private volatile Instant finishedAt;
+        private volatile CompletableFuture<Void> future;
+
+        Progress(int days, Instant cutoff) {
+            this.days = days;
+            this.cutoff = cutoff;
+        }
+
+        void finish(String state, String error) {
+            this.error = error;
+            this.finishedAt = Instant.now();
+            this.state = state;
+        }
+
+        public boolean isRunning() {
+            return "RUNNING".equals(state);
+        }
+
+        public Duration elapsed() {
+            return Duration.between(startedAt, finishedAt != null ? finishedAt : Instant.now());
+        }
+
+        public double profilesPerSecond() {
+            long ms = Math.max(1, elapsed().toMillis());
+            return deletedRows.get() * 1000.0 / ms;
+        }
+
+        public int getDays() { return days; }
+        public Instant getStartedAt() { return startedAt; }
+        public Instant getFinishedAt() { return finishedAt; }
+        public String getState() { return state; }
+        public String getError() { return error; }
+        public boolean isCancelRequested() { return cancelRequested.get(); }
+        public long getCandidates() { return candidates.get(); }
+        public long getDeletedRows() { return deletedRows.get(); }
+        public long getSkipped() { return skipped.get(); }
+        public long getDirectoriesDeleted() { return directoriesDeleted.get(); }
+        public long getDirectoryFailures() { return directoryFailures.get(); }
+    }
+}
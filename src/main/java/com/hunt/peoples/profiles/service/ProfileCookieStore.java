@@ -0,0 +1,180 @@
+package com.hunt.peoples.profiles.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.hunt.peoples.profiles.entity.ProfileCookieDomain;
+import com.hunt.peoples.profiles.repository.ProfileCookieRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Хранилище куки профиля в таблице profile_cookies (gzip, по строке на домен).
+ *
+ * saveCookies() пишет только домены, у которых поменялся хэш содержимого, и удаляет исчезнувшие.
+ * Старые профили с куками в profiles.cookies_json переносятся при первом чтении.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfileCookieStore {
+
+    private static final Comparator<JsonNode> COOKIE_ORDER = Comparator
+            .comparing((JsonNode c) -> c.path("domain").asText(""))
+            .thenComparing(c -> c.path("path").asText(""))
+            .thenComparing(c -> c.path("name").asText(""));
+
+    private final ProfileCookieRepository cookieRepository;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    // есть ли ещё старая колонка profiles.cookies_json (проверяется один раз)
+    private volatile Boolean legacyColumnPresent;
+
+    /**
+     * Сохраняет куки (массив из Network.getAllCookies) инкрементально.
+     * @return сколько доменов было записано/удалено
+     */
+    @Transactional
+    public int saveCookies(Long profileId, JsonNode cookies) {
+        if (profileId == null || cookies == null || !cookies.isArray()) return 0;
+
+        Map<String, List<JsonNode>> byDomain = new TreeMap<>();
+        for (JsonNode c : cookies) {
+            byDomain.computeIfAbsent(domainKey(c.path("domain").asText("")), k -> new ArrayList<>()).add(c);
+        }
+
+        Map<String, String> existing = new HashMap<>();
+        for (ProfileCookieRepository.DomainHash dh : cookieRepository.findDomainHashes(profileId)) {
+            existing.put(dh.getDomain(), dh.getContentHash());
+        }
+
+        Instant now = Instant.now();
+        int changed = 0;
+        for (Map.Entry<String, List<JsonNode>> e : byDomain.entrySet()) {
+            List<JsonNode> list = e.getValue();
+            list.sort(COOKIE_ORDER);
+            ArrayNode arr = objectMapper.createArrayNode().addAll(list);
+
+            byte[] json = arr.toString().getBytes(StandardCharsets.UTF_8);
+            String hash = sha256(json);
+            if (hash.equals(existing.get(e.getKey()))) continue;
+
+            cookieRepository.upsert(profileId, e.getKey(), gzip(json), hash, list.size(), now);
+            changed++;
+        }
+
+        Set<String> removed = new HashSet<>(existing.keySet());
+        removed.removeAll(byDomain.keySet());
+        if (!removed.isEmpty()) {
+            changed += cookieRepository.deleteDomains(profileId, removed);
+        }
+
+        log.debug("Cookies saved for profile {}: {} domains, {} changed", profileId, byDomain.size(), changed);
+        return changed;
+    }
+
+    /**
+     * Все куки профиля одним JSON-массивом (формат Network.getAllCookies) или null, если куки нет.
+     */
+    @Transactional
+    public String loadCookiesJson(Long profileId) {
+        if (profileId == null) return null;
+
+        List<ProfileCookieDomain> rows = cookieRepository.findByProfileId(profileId);
+        if (rows.isEmpty()) {
+            return migrateLegacyCookies(profileId);
+        }
+
+        ArrayNode all = objectMapper.createArrayNode();
+        for (ProfileCookieDomain row : rows) {
+            try {
+                JsonNode arr = objectMapper.readTree(gunzip(row.getCookiesGz()));
+                if (arr.isArray()) all.addAll((ArrayNode) arr);
+            } catch (IOException e) {
+                log.warn("Broken cookie row (profile={}, domain={}): {}", profileId, row.getDomain(), e.getMessage());
+            }
+        }
+        return all.isEmpty() ? null : all.toString();
+    }
+
+    @Transactional
+    public void deleteCookies(Long profileId) {
+        cookieRepository.deleteByProfileId(profileId);
+    }
+
+    // Куки, сохранённые до появления profile_cookies, лежат в profiles.cookies_json
+    private String migrateLegacyCookies(Long profileId) {
+        if (!legacyColumnPresent()) return null;
+
+        String legacy = jdbcTemplate.query("SELECT cookies_json FROM profiles WHERE id = ?",
+                rs -> rs.next() ? rs.getString(1) : null, profileId);
+        if (legacy == null || legacy.isBlank() || "[]".equals(legacy.trim())) return null;
+
+        try {
+            saveCookies(profileId, objectMapper.readTree(legacy));
+            jdbcTemplate.update("UPDATE profiles SET cookies_json = NULL WHERE id = ?", profileId);
+            log.info("Cookies of profile {} moved from profiles.cookies_json to profile_cookies", profileId);
+        } catch (Exception e) {
+            log.warn("Legacy cookies migration failed for profile {}: {}", profileId, e.getMessage());
+        }
+        return legacy;
+    }
+
+    private boolean legacyColumnPresent() {
+        Boolean present = legacyColumnPresent;
+        if (present == null) {
+            // через information_schema, чтобы ошибка "нет колонки" не ломала текущую транзакцию
+            Integer cnt = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.columns WHERE table_name = 'profiles' AND column_name = 'cookies_json'",
+                    Integer.class);
+            present = cnt != null && cnt > 0;
+            legacyColumnPresent = present;
+        }
+        return present;
+    }
+
+    private static String domainKey(String domain) {
+        String d = domain.trim().toLowerCase(Locale.ROOT);
+        while (d.startsWith(".")) d = d.substring(1);
+        return d.isEmpty() ? "_" : d;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(bos)) {
+            gz.write(data);
+        } catch (IOException e) {
+            throw new RuntimeException("Cookie compression failed", e);
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream gz = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return gz.readAllBytes();
+        }
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.hunt.peoples.profiles.service;
+
+import com.hunt.peoples.profiles.entity.Profile;
+import com.hunt.peoples.profiles.repository.ProfileRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Учёт места на диске по профилям без Files.walk на каждый запрос.
+ *
+ * Размеры держатся в памяти: первичный параллельный скан при старте, пересчёт профиля
+ * после остановки браузера (пока контейнер работает, Chrome и так постоянно пишет кэш)
+ * и полный пересчёт раз в disk.usage.full-rescan-interval-ms. Скан — walkFileTree:
+ * один stat на файл (атрибуты приходят в visitFile) вместо трёх у walk + isRegularFile + size.
+ *
+ * WatchService не используется: он не рекурсивный, а в кэше Chrome десятки тысяч каталогов.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfileDiskUsageService {
+
+    private final ProfileRepository profileRepository;
+    private final ProfileCache profileCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${disk.usage.scan-threads:4}")
+    private int scanThreads;
+
+    @Value("${disk.usage.full-rescan-interval-ms:21600000}")
+    private long fullRescanIntervalMs;
+
+    private final Map<Long, Usage> usage = new ConcurrentHashMap<>();
+    private final Set<Long> pendingRescans = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<Instant> lastFullScanAt = new AtomicReference<>();
+
+    private ExecutorService scanPool;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "disk-usage-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void init() {
+        scanPool = Executors.newFixedThreadPool(Math.max(1, scanThreads), r -> {
+            Thread t = new Thread(r, "disk-usage-scan");
+            t.setDaemon(true);
+            return t;
+        });
+        meterRegistry.gauge("profile.disk.usage.bytes", this, s -> s.getTotalBytes());
+
+        // первый полный скан — сразу в фоне, дальше по расписанию
+        scheduler.scheduleWithFixedDelay(this::fullScanSafely, 0, fullRescanIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        scanPool.shutdownNow();
+    }
+
+    /**
+     * Размер из учёта; если профиль ещё не сканировался — считаем синхронно и запоминаем.
+     */
+    public Optional<Usage> getUsage(Long profileId) {
+        Usage u = usage.get(profileId);
+        if (u != null) return Optional.of(u);
+        return profileCache.findById(profileId).map(this::scan);
+    }
+
+    /** Пересчитать профиль в фоне (после остановки браузера, восстановления директории) */
+    public void rescanAsync(Long profileId) {
+        // уже стоит в очереди — второй раз не сканируем
+        if (!pendingRescans.add(profileId)) return;
+        scanPool.execute(() -> {
+            try {
+                profileCache.findById(profileId).ifPresentOrElse(this::scan, () -> usage.remove(profileId));
+            } catch (Exception e) {
+                log.warn("Disk usage rescan failed for profile {}: {}", profileId, e.getMessage());
+            } finally {
+                pendingRescans.remove(profileId);
+            }
+        });
+    }
+
+    /** Профиль удалён — убрать из учёта */
+    public void forget(Long profileId) {
+        usage.remove(profileId);
+    }
+
+    public long getTotalBytes() {
+        return usage.values().stream().mapToLong(Usage::sizeBytes).sum();
+    }
+
+    public Summary getSummary(int top) {
+        List<Usage> all = new ArrayList<>(usage.values());
+        all.sort(Comparator.comparingLong(Usage::sizeBytes).reversed());
+        return new Summary(
+                all.stream().mapToLong(Usage::sizeBytes).sum(),
+                all.stream().mapToLong(Usage::fileCount).sum(),
+                all.size(),
+                lastFullScanAt.get(),
+                all.subList(0, Math.min(Math.max(top, 0), all.size())));
+    }
+
+    private void fullScanSafely() {
+        try {
+            fullScan();
+        } catch (Exception e) {
+            log.warn("Full disk usage scan failed: {}", e.getMessage());
+        }
+    }
+
+    private void fullScan() throws InterruptedException {
+        long started = System.currentTimeMillis();
+        List<ProfileRepository.ProfilePath> paths = profileRepository.findAllUserDataPaths();
+
+        List<Callable<Usage>> tasks = new ArrayList<>(paths.size());
+        for (ProfileRepository.ProfilePath p : paths) {
+            tasks.add(() -> scan(p.getId(), p.getUserDataPath()));
+        }
+        scanPool.invokeAll(tasks);
+
+        // профили, удалённые в обход forget()
+        usage.keySet().retainAll(paths.stream().map(ProfileRepository.ProfilePath::getId).toList());
+
+        lastFullScanAt.set(Instant.now());
+        log.info("Disk usage scan: {} profiles, {} bytes in {} ms",
+                paths.size(), getTotalBytes(), System.currentTimeMillis() - started);
+    }
+
+    private Usage scan(Profile profile) {
+        return scan(profile.getId(), profile.getUserDataPath());
+    }
+
+    private Usage scan(Long profileId, String userDataPath) {
+        Usage result;
+        if (userDataPath == null || userDataPath.isBlank()) {
+            result = new Usage(profileId, 0, 0, false, Instant.now());
+        } else {
+            Path root = Paths.get(userDataPath);
+            if (!Files.isDirectory(root)) {
+                result = new Usage(profileId, 0, 0, false, Instant.now());
+            } else {
+                long[] totals = new long[2];
+                try {
+                    Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            if (attrs.isRegularFile()) {
+                                totals[0] += attrs.size();
+                                totals[1]++;
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                            // Chrome удаляет файлы кэша прямо во время обхода
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+                } catch (IOException e) {
+                    log.warn("Failed to calculate directory size for profile {}: {}", profileId, e.getMessage());
+                }
+                result = new Usage(profileId, totals[0], totals[1], true, Instant.now());
+            }
+        }
+        usage.put(profileId, result);
+        return result;
+    }
+
+    public record Usage(Long profileId, long sizeBytes, long fileCount, boolean directoryExists,
+                        Instant scannedAt) {
+    }
+
+    public record Summary(long totalBytes, long totalFiles, int profileCount, Instant lastFullScanAt,
+                          List<Usage> largest) {
+    }
+}
@@ -0,0 +1,313 @@
+package com.hunt.peoples.profiles.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hunt.peoples.browser.service.BrowserContainerService;
+import com.hunt.peoples.profiles.entity.Profile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Push-поток событий профилей вместо опроса /status: один WebSocket или SSE на клиента.
+ *
+ * Слушает ProfileLifecycleEvent внутри процесса и раздаёт подписчикам по фильтру
+ * (profileId, externalKey, userId держателя аренды, state/type). Публикующий поток
+ * (флашер статусов, старт браузера) только кладёт событие во входную очередь: дополнение
+ * externalKey/holder (одним findAllById на пачку), сериализация и раздача идут в потоке
+ * диспетчера, отправка — в отдельном пуле. Переполненная очередь (медленный клиент)
+ * закрывает подписку.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfileEventStream {
+
+    private static final Outgoing PING = new Outgoing(null, null);
+    private static final int DISPATCH_BATCH = 500;
+
+    private final ObjectMapper objectMapper;
+    private final ProfileCache profileCache;
+    private final BrowserContainerService browserContainerService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${profile.events.queue-size:256}")
+    private int queueSize;
+
+    @Value("${profile.events.heartbeat-ms:25000}")
+    private long heartbeatMs;
+
+    @Value("${profile.events.inbox-size:10000}")
+    private int inboxSize;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private ObjectWriter writer;
+    private BlockingQueue<ProfileLifecycleEvent> inbox;
+    private ExecutorService dispatcher;
+    private ExecutorService sender;
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "profile-events-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Counter publishedCounter;
+    private Counter droppedCounter;
+    private Counter inboxOverflowCounter;
+
+    @PostConstruct
+    public void init() {
+        // одна строка на событие: SSE data и WebSocket text frame
+        writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        inbox = new LinkedBlockingQueue<>(Math.max(1, inboxSize));
+        dispatcher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "profile-events-dispatcher");
+            t.setDaemon(true);
+            return t;
+        });
+        dispatcher.execute(this::dispatchLoop);
+        sender = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "profile-events-sender");
+            t.setDaemon(true);
+            return t;
+        });
+
+        publishedCounter = meterRegistry.counter("profile.events.published");
+        droppedCounter = meterRegistry.counter("profile.events.subscribers.dropped");
+        inboxOverflowCounter = meterRegistry.counter("profile.events.inbox.overflow");
+        meterRegistry.gauge("profile.events.subscribers", subscribers, Set::size);
+
+        heartbeat.scheduleWithFixedDelay(() -> subscribers.forEach(s -> s.offer(PING)),
+                heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        subscribers.forEach(Subscriber::close);
+        sender.shutdownNow();
+    }
+
+    /**
+     * Вызывается в потоке публикующего (в т.ч. флашера статусов под его блокировкой) —
+     * здесь только offer во входную очередь, без обращений к кэшу/БД.
+     */
+    @EventListener
+    public void onEvent(ProfileLifecycleEvent event) {
+        if (subscribers.isEmpty()) return;
+        if (!inbox.offer(event)) {
+            inboxOverflowCounter.increment();
+            log.debug("Profile event inbox is full, dropping {}", event);
+        }
+    }
+
+    private void dispatchLoop() {
+        List<ProfileLifecycleEvent> batch = new ArrayList<>(DISPATCH_BATCH);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(inbox.take());
+                inbox.drainTo(batch, DISPATCH_BATCH - 1);
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("Profile event dispatch failed: {}", e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void dispatch(List<ProfileLifecycleEvent> batch) {
+        if (subscribers.isEmpty()) return;
+
+        Set<Long> toEnrich = batch.stream()
+                .filter(e -> e.externalKey() == null || e.holder() == null)
+                .map(ProfileLifecycleEvent::profileId)
+                .collect(Collectors.toSet());
+        Map<Long, Profile> profiles = toEnrich.isEmpty() ? Map.of() : profileCache.findAllById(toEnrich);
+
+        for (ProfileLifecycleEvent event : batch) {
+            Profile p = profiles.get(event.profileId());
+            ProfileLifecycleEvent full = p != null ? event.enriched(p.getExternalKey(), p.getLockedByUserId()) : event;
+            Outgoing message;
+            try {
+                message = new Outgoing(full.type(), writer.writeValueAsString(full));
+            } catch (JsonProcessingException e) {
+                log.warn("Cannot serialize profile event {}: {}", full, e.getMessage());
+                continue;
+            }
+            publishedCounter.increment();
+            for (Subscriber s : subscribers) {
+                if (s.filter.matches(full)) s.offer(message);
+            }
+        }
+    }
+
+    /**
+     * Подписаться. Для явно указанных профилей сразу уходит SNAPSHOT текущего состояния,
+     * чтобы клиент не пропустил переход, случившийся до подключения.
+     */
+    public Subscriber subscribe(Filter filter, Sink sink) {
+        Subscriber subscriber = new Subscriber(filter, sink);
+        subscribers.add(subscriber);
+
+        filter.profileIds().forEach(id -> profileCache.findById(id).ifPresent(p -> subscriber.offer(snapshot(p))));
+        filter.externalKeys().forEach(key -> profileCache.findByExternalKey(key)
+                .ifPresent(p -> subscriber.offer(snapshot(p))));
+        return subscriber;
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        if (subscriber != null) subscribers.remove(subscriber);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private Outgoing snapshot(Profile p) {
+        String state = browserContainerService.isBrowserRunning(p.getId()) ? "READY" : p.getStatus();
+        ProfileLifecycleEvent event = new ProfileLifecycleEvent(ProfileLifecycleEvent.SNAPSHOT, p.getId(),
+                p.getExternalKey(), state, p.getLockedByUserId(), Instant.now(), Map.of());
+        try {
+            return new Outgoing(event.type(), writer.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Куда отправлять: WebSocket-сессия или SseEmitter */
+    public interface Sink {
+        void send(String type, String json) throws IOException;
+
+        void ping() throws IOException;
+
+        void close();
+    }
+
+    /**
+     * Фильтр подписки; пустое множество — без ограничения. states сравнивается и с state, и с type.
+     */
+    public record Filter(Set<Long> profileIds, Set<String> externalKeys, Set<String> holders, Set<String> states) {
+
+        public static Filter parse(String profileIds, String externalKeys, String userIds, String states) {
+            Set<Long> ids;
+            try {
+                ids = split(profileIds).stream().map(Long::valueOf).collect(Collectors.toUnmodifiableSet());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("profileId must be a comma-separated list of numbers");
+            }
+            return new Filter(ids, split(externalKeys), split(userIds),
+                    split(states).stream().map(String::toUpperCase).collect(Collectors.toUnmodifiableSet()));
+        }
+
+        boolean matches(ProfileLifecycleEvent e) {
+            return (profileIds.isEmpty() || in(profileIds, e.profileId()))
+                    && (externalKeys.isEmpty() || in(externalKeys, e.externalKey()))
+                    && (holders.isEmpty() || in(holders, e.holder()))
+                    && (states.isEmpty() || in(states, e.state()) || in(states, e.type()));
+        }
+
+        // неизменяемые Set бросают NPE на contains(null)
+        private static <T> boolean in(Set<T> set, T value) {
+            return value != null && set.contains(value);
+        }
+
+        private static Set<String> split(String csv) {
+            if (csv == null || csv.isBlank()) return Set.of();
+            return Arrays.stream(csv.split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .collect(Collectors.toUnmodifiableSet());
+        }
+    }
+
+    private record Outgoing(String type, String json) {
+    }
+
+    /**
+     * Подписчик с ограниченной очередью; отправкой занимается не более одной задачи пула за раз,
+     * поэтому порядок событий сохраняется и sink не вызывается конкурентно.
+     */
+    public final class Subscriber {
+        private final Filter filter;
+        private final Sink sink;
+        private final BlockingQueue<Outgoing> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(Filter filter, Sink sink) {
+            this.filter = filter;
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        }
+
+        void offer(Outgoing message) {
+            if (closed.get()) return;
+            if (!queue.offer(message)) {
+                droppedCounter.increment();
+                log.warn("Profile event subscriber is too slow ({} queued), closing", queue.size());
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            subscribers.remove(this);
+            queue.clear();
+            sink.close();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Outgoing m;
+                while (!closed.get() && (m = queue.poll()) != null) {
+                    if (m == PING) {
+                        sink.ping();
+                    } else {
+                        sink.send(m.type(), m.json());
+                    }
+                }
+            } catch (Exception e) {
+                log.debug("Profile event subscriber disconnected: {}", e.getMessage());
+                close();
+            } finally {
+                draining.set(false);
+                if (!closed.get() && !queue.isEmpty()) scheduleDrain();
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.hunt.peoples.profiles.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Аренда профиля (lease) вместо безусловного lockProfile.
+ *
+ * Захват — один условный UPDATE ... RETURNING: у профиля нет держателя, аренда просрочена
+ * или уже принадлежит этому же держателю (повторный захват = продление). Решает именно
+ * locked_by_user_id, а не status: status пишут и остановка браузера, и write-behind, и
+ * FREE там не значит, что живая аренда снята. Никакого
+ * read-modify-write: двое одновременно захватить не могут, решает строка в Postgres.
+ * Держатель продлевает аренду heartbeat'ом; просроченные освобождает фоновый sweep.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfileLeaseService {
+
+    private static final String ACQUIRE_SQL = """
+            UPDATE profiles SET
+                status            = 'BUSY',
+                locked_by_user_id = ?,
+                lease_expires_at  = now() + ? * interval '1 millisecond',
+                last_used_at      = now(),
+                updated_at        = now()
+            WHERE id = ?
+              AND (locked_by_user_id IS NULL
+                   OR lease_expires_at < now()
+                   OR locked_by_user_id = ?)
+            RETURNING id, locked_by_user_id, lease_expires_at
+            """;
+
+    private static final String HEARTBEAT_SQL = """
+            UPDATE profiles SET lease_expires_at = now() + ? * interval '1 millisecond'
+            WHERE id = ? AND status = 'BUSY' AND locked_by_user_id = ?
+              AND lease_expires_at >= now()
+            RETURNING id, locked_by_user_id, lease_expires_at
+            """;
+
+    private static final String RELEASE_SQL = """
+            UPDATE profiles SET
+                status            = 'FREE',
+                locked_by_user_id = NULL,
+                lease_expires_at  = NULL,
+                last_used_at      = now(),
+                updated_at        = now()
+            WHERE id = ? AND locked_by_user_id = ?
+            """;
+
+    // освобождение после остановки браузера: только если держатель тот же, что был при остановке
+    // (NULL — профиль запускали без аренды); аренду, захваченную за это время другим, не трогаем
+    private static final String RELEASE_IF_HELD_SQL = """
+            UPDATE profiles SET
+                status            = 'FREE',
+                locked_by_user_id = NULL,
+                lease_expires_at  = NULL,
+                last_used_at      = now(),
+                updated_at        = now()
+            WHERE id = ? AND locked_by_user_id IS NOT DISTINCT FROM ?
+            """;
+
+    private static final String EXPIRE_SQL = """
+            UPDATE profiles SET
+                status            = 'FREE',
+                locked_by_user_id = NULL,
+                lease_expires_at  = NULL,
+                updated_at        = now()
+            WHERE lease_expires_at < now()
+            RETURNING id
+            """;
+
+    private static final RowMapper<Lease> LEASE_MAPPER = (rs, i) -> new Lease(
+            rs.getLong("id"),
+            rs.getString("locked_by_user_id"),
+            rs.getTimestamp("lease_expires_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProfileCache profileCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${profile.lease.default-ttl-ms:60000}")
+    private long defaultTtlMs;
+
+    @Value("${profile.lease.max-ttl-ms:3600000}")
+    private long maxTtlMs;
+
+    @Value("${profile.lease.sweep-interval-ms:15000}")
+    private long sweepIntervalMs;
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "profile-lease-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Counter acquiredCounter;
+    private Counter rejectedCounter;
+    private Counter expiredCounter;
+
+    @PostConstruct
+    public void init() {
+        acquiredCounter = meterRegistry.counter("profile.lease.acquire", "result", "acquired");
+        rejectedCounter = meterRegistry.counter("profile.lease.acquire", "result", "rejected");
+        expiredCounter = meterRegistry.counter("profile.lease.expired");
+
+        sweeper.scheduleWithFixedDelay(this::expireSafely, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Захватить профиль. Пусто — профиль занят другим держателем (или не существует).
+     */
+    public Optional<Lease> acquire(Long profileId, String holder, Duration ttl) {
+        requireHolder(holder);
+        List<Lease> rows = jdbcTemplate.query(ACQUIRE_SQL, LEASE_MAPPER,
+                holder, ttlMillis(ttl), profileId, holder);
+        profileCache.invalidate(profileId);
+
+        if (rows.isEmpty()) {
+            rejectedCounter.increment();
+            log.debug("Lease for profile {} rejected for {}", profileId, holder);
+            return Optional.empty();
+        }
+        acquiredCounter.increment();
+        eventPublisher.publishEvent(ProfileLifecycleEvent.of(
+                ProfileLifecycleEvent.LEASE_ACQUIRED, profileId, "BUSY", holder));
+        log.info("Profile {} leased by {} until {}", profileId, holder, rows.get(0).expiresAt());
+        return Optional.of(rows.get(0));
+    }
+
+    /**
+     * Продлить свою аренду. Пусто — аренда уже потеряна (просрочена, снята или чужая).
+     */
+    public Optional<Lease> heartbeat(Long profileId, String holder, Duration ttl) {
+        requireHolder(holder);
+        List<Lease> rows = jdbcTemplate.query(HEARTBEAT_SQL, LEASE_MAPPER,
+                ttlMillis(ttl), profileId, holder);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+
+    /** Освободить свою аренду; false — профиль держит не он */
+    public boolean release(Long profileId, String holder) {
+        requireHolder(holder);
+        boolean released = jdbcTemplate.update(RELEASE_SQL, profileId, holder) > 0;
+        if (released) {
+            profileCache.invalidate(profileId);
+            eventPublisher.publishEvent(ProfileLifecycleEvent.of(
+                    ProfileLifecycleEvent.LEASE_RELEASED, profileId, "FREE", holder));
+            log.info("Profile {} lease released by {}", profileId, holder);
+        }
+        return released;
+    }
+
+    /** Текущий держатель из БД (не из кэша); null — профиль не арендован или не существует */
+    public String currentHolder(Long profileId) {
+        List<String> rows = jdbcTemplate.queryForList(
+                "SELECT locked_by_user_id FROM profiles WHERE id = ?", String.class, profileId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Освободить профиль, если его всё ещё держит expectedHolder (может быть null).
+     * false — за это время профиль захватил кто-то другой (или его нет).
+     */
+    public boolean releaseIfHeldBy(Long profileId, String expectedHolder) {
+        boolean released = jdbcTemplate.update(RELEASE_IF_HELD_SQL, profileId, expectedHolder) > 0;
+        profileCache.invalidate(profileId);
+        if (released) {
+            eventPublisher.publishEvent(ProfileLifecycleEvent.of(
+                    ProfileLifecycleEvent.LEASE_RELEASED, profileId, "FREE", expectedHolder));
+        } else {
+            log.info("Profile {} not released: no longer held by {}", profileId, expectedHolder);
+        }
+        return released;
+    }
+
+    /** Освободить все просроченные аренды (фоновый sweep) */
+    public int expireLeases() {
+        List<Long> ids = jdbcTemplate.queryForList(EXPIRE_SQL, Long.class);
+        if (!ids.isEmpty()) {
+            ids.forEach(id -> {
+                profileCache.invalidate(id);
+                eventPublisher.publishEvent(ProfileLifecycleEvent.of(ProfileLifecycleEvent.LEASE_EXPIRED, id, "FREE"));
+            });
+            expiredCounter.increment(ids.size());
+            log.warn("Expired {} profile leases: {}", ids.size(), ids);
+        }
+        return ids.size();
+    }
+
+    private void expireSafely() {
+        try {
+            expireLeases();
+        } catch (Exception e) {
+            log.warn("Lease expiry sweep failed: {}", e.getMessage());
+        }
+    }
+
+    private long ttlMillis(Duration ttl) {
+        long ms = ttl != null ? ttl.toMillis() : defaultTtlMs;
+        if (ms <= 0) ms = defaultTtlMs;
+        return Math.min(ms, maxTtlMs);
+    }
+
+    private static void requireHolder(String holder) {
+        if (holder == null || holder.isBlank()) {
+            throw new IllegalArgumentException("Lease holder (userId) is required");
+        }
+    }
+
+    public record Lease(Long profileId, String holder, Instant expiresAt) {
+    }
+}
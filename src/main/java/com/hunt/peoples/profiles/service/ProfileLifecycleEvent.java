@@ -0,0 +1,46 @@
+package com.hunt.peoples.profiles.service;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Внутрипроцессное событие жизненного цикла профиля (ApplicationEventPublisher).
+ * Публикуют ProfileStatusWriter, ProfileLeaseService и BrowserContainerService;
+ * ProfileEventStream раздаёт их подписчикам WebSocket / SSE.
+ *
+ * externalKey и holder могут быть null — поток дополняет их из ProfileCache в своём
+ * потоке-диспетчере, не в потоке публикующего.
+ */
+public record ProfileLifecycleEvent(String type, Long profileId, String externalKey, String state,
+                                    String holder, Instant at, Map<String, String> details) {
+
+    public static final String STATUS = "STATUS";
+    public static final String LEASE_ACQUIRED = "LEASE_ACQUIRED";
+    public static final String LEASE_RELEASED = "LEASE_RELEASED";
+    public static final String LEASE_EXPIRED = "LEASE_EXPIRED";
+    public static final String BROWSER_STARTING = "BROWSER_STARTING";
+    public static final String BROWSER_READY = "BROWSER_READY";
+    public static final String BROWSER_STOPPED = "BROWSER_STOPPED";
+    public static final String BROWSER_FAILED = "BROWSER_FAILED";
+    public static final String SNAPSHOT = "SNAPSHOT";
+
+    public static ProfileLifecycleEvent of(String type, Long profileId, String state) {
+        return new ProfileLifecycleEvent(type, profileId, null, state, null, Instant.now(), Map.of());
+    }
+
+    public static ProfileLifecycleEvent of(String type, Long profileId, String state, String holder) {
+        return new ProfileLifecycleEvent(type, profileId, null, state, holder, Instant.now(), Map.of());
+    }
+
+    public ProfileLifecycleEvent withDetails(Map<String, String> details) {
+        return new ProfileLifecycleEvent(type, profileId, externalKey, state, holder, at, details);
+    }
+
+    ProfileLifecycleEvent enriched(String externalKey, String holder) {
+        return new ProfileLifecycleEvent(type, profileId,
+                this.externalKey != null ? this.externalKey : externalKey,
+                state,
+                this.holder != null ? this.holder : holder,
+                at, details);
+    }
+}
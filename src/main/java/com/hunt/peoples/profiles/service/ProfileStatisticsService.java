@@ -0,0 +1,115 @@
+package com.hunt.peoples.profiles.service;
+
+import com.hunt.peoples.browser.dto.FingerprintDashboard;
+import com.hunt.peoples.browser.dto.ProfileSummaryStatistics;
+import com.hunt.peoples.profiles.repository.FingerprintCheckRepository;
+import com.hunt.peoples.profiles.repository.GroupCount;
+import com.hunt.peoples.profiles.repository.ProfileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Статистика профилей и дашборд fingerprint на агрегирующих запросах (COUNT / GROUP BY / AVG).
+ * Результат держится stats.cache-ttl-ms, чтобы частый опрос дашборда не гонял агрегаты по большой таблице.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfileStatisticsService {
+
+    private static final double HIGH_RISK_THRESHOLD = 0.7;
+
+    private final ProfileRepository profileRepository;
+    private final FingerprintCheckRepository checkRepository;
+
+    // 0 — не кэшировать
+    @Value("${stats.cache-ttl-ms:10000}")
+    private long cacheTtlMs;
+
+    private final Map<String, Snapshot<?>> snapshots = new ConcurrentHashMap<>();
+
+    public ProfileSummaryStatistics getProfileSummary() {
+        return cached("profiles", this::buildProfileSummary);
+    }
+
+    public FingerprintDashboard getFingerprintDashboard(int days) {
+        return cached("dashboard:" + days, () -> buildDashboard(days));
+    }
+
+    private ProfileSummaryStatistics buildProfileSummary() {
+        Map<String, Long> byStatus = toMap(profileRepository.countGroupByStatus());
+        long total = byStatus.values().stream().mapToLong(Long::longValue).sum();
+
+        return ProfileSummaryStatistics.builder()
+                .totalProfiles(total)
+                .activeProfiles(byStatus.getOrDefault("BUSY", 0L))
+                .freeProfiles(byStatus.getOrDefault("FREE", 0L))
+                .highRiskProfiles(profileRepository.countByDetectionRiskGreaterThanEqual(HIGH_RISK_THRESHOLD))
+                .platformDistribution(toMap(profileRepository.countGroupByPlatform()))
+                .levelDistribution(toMap(profileRepository.countGroupByDetectionLevel()))
+                .generatedAt(Instant.now())
+                .build();
+    }
+
+    private FingerprintDashboard buildDashboard(int days) {
+        Instant now = Instant.now();
+        Instant fromDate = now.minus(days, ChronoUnit.DAYS);
+
+        Map<String, Long> byStatus = toMap(profileRepository.countGroupByStatus());
+        long totalProfiles = byStatus.values().stream().mapToLong(Long::longValue).sum();
+
+        FingerprintCheckRepository.CheckTotals totals = checkRepository.getCheckTotalsBetween(fromDate, now);
+        long totalChecks = totals != null && totals.getTotal() != null ? totals.getTotal() : 0L;
+        double averageRisk = totals != null && totals.getAverageRisk() != null ? totals.getAverageRisk() : 0.0;
+
+        return FingerprintDashboard.builder()
+                .totalProfiles(totalProfiles)
+                .activeProfiles(byStatus.getOrDefault("BUSY", 0L))
+                .highRiskProfiles(profileRepository.countByDetectionRiskGreaterThanEqual(HIGH_RISK_THRESHOLD))
+                .totalChecks(totalChecks)
+                .averageRisk(averageRisk)
+                .checksByDay(toMap(checkRepository.countByDayBetween(fromDate, now, ZoneId.systemDefault().getId())))
+                .riskDistribution(toMap(checkRepository.countByRiskLevelBetween(fromDate, now)))
+                .deviceDistribution(toMap(profileRepository.countGroupByPlatform()))
+                .generatedAt(now)
+                .timeRangeDays(days)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String key, Supplier<T> loader) {
+        if (cacheTtlMs <= 0) {
+            return loader.get();
+        }
+        long now = System.currentTimeMillis();
+        Snapshot<?> s = snapshots.get(key);
+        if (s != null && now - s.builtAt() < cacheTtlMs) {
+            return (T) s.value();
+        }
+        T value = loader.get();
+        snapshots.put(key, new Snapshot<>(value, now));
+        return value;
+    }
+
+    private static Map<String, Long> toMap(List<GroupCount> rows) {
+        Map<String, Long> map = new TreeMap<>();
+        for (GroupCount row : rows) {
+            map.put(row.getKey() != null ? row.getKey() : "UNKNOWN", row.getCount());
+        }
+        return map;
+    }
+
+    private record Snapshot<T>(T value, long builtAt) {
+    }
+}
@@ -0,0 +1,304 @@
+package com.hunt.peoples.profiles.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind для status / last_used_at профиля. locked_by_user_id и lease_expires_at
+ * сюда не ходят — захват и освобождение только условными UPDATE в ProfileLeaseService.
+ *
+ * Запись статуса тоже условная: строка, которую держит живая аренда другого держателя,
+ * пропускается. Поставленный до захвата FREE/STOPPING, записанный батчем уже после него,
+ * не затрёт BUSY нового держателя.
+ *
+ * Изменения копятся по profileId (последнее побеждает, незаданные поля не трогаются)
+ * и раз в flush-interval-ms уходят одним JDBC batch UPDATE только этих колонок —
+ * без findById + save всей широкой строки. apply() — синхронный режим (read-your-writes).
+ *
+ * Пишет только поток флашера, в собственной транзакции (REQUIRES_NEW): batch не попадает
+ * в транзакцию вызывающего, и его откат не съедает чужие изменения. Future завершаются
+ * после коммита. Если batch упал, строки пишутся по одной — плохая строка валит только свои future.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfileStatusWriter {
+
+    private static final String UPDATE_SQL = """
+            UPDATE profiles SET
+                status       = COALESCE(?, status),
+                last_used_at = COALESCE(?, last_used_at),
+                updated_at   = ?
+            WHERE id = ?
+              AND (locked_by_user_id IS NULL
+                   OR lease_expires_at < now()
+                   OR locked_by_user_id = ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ProfileCache profileCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${profile.status.flush-interval-ms:10}")
+    private long flushIntervalMs;
+
+    @Value("${profile.status.sync-timeout-ms:5000}")
+    private long syncTimeoutMs;
+
+    private final ConcurrentHashMap<Long, Pending> pending = new ConcurrentHashMap<>();
+    // ReentrantLock, а не synchronized: внутри JDBC, и на JDK 21 synchronized пинит виртуальный поток
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "profile-status-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private TransactionTemplate tx;
+
+    private Counter submittedCounter;
+    private Counter writtenCounter;
+    private Counter skippedCounter;
+    private DistributionSummary batchSize;
+
+    @PostConstruct
+    public void init() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        submittedCounter = meterRegistry.counter("profile.status.updates", "stage", "submitted");
+        writtenCounter = meterRegistry.counter("profile.status.updates", "stage", "written");
+        skippedCounter = meterRegistry.counter("profile.status.updates", "stage", "skipped_leased");
+        batchSize = meterRegistry.summary("profile.status.batch.size");
+        meterRegistry.gauge("profile.status.pending", pending, ConcurrentHashMap::size);
+
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Поставить изменение в очередь. Future завершается после записи:
+     * true — профиль есть (обновлён или пропущен из-за чужой аренды), false — профиля с таким id нет.
+     */
+    public CompletableFuture<Boolean> submit(StatusChange change) {
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        pending.compute(change.profileId(), (id, p) -> {
+            if (p == null) return new Pending(change, done);
+            p.merge(change, done);
+            return p;
+        });
+        submittedCounter.increment();
+        return done;
+    }
+
+    /** Синхронно: поставить, сразу разбудить флашер и дождаться записи */
+    public boolean apply(StatusChange change) {
+        CompletableFuture<Boolean> done = submit(change);
+        requestFlush();
+        try {
+            return done.get(syncTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Profile status update failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while updating profile status", e);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Profile status update timed out for profile " + change.profileId(), e);
+        }
+    }
+
+    /** Сбросить очередь на потоке флашера и дождаться (read-your-writes после submit) */
+    public void flushAndWait() {
+        try {
+            flusher.submit(this::flushSafely).get(syncTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // флашер остановлен (shutdown) — очередь уже сброшена в shutdown()
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Profile status flush failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while flushing profile statuses", e);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Profile status flush timed out", e);
+        }
+    }
+
+    private void requestFlush() {
+        try {
+            flusher.execute(this::flushSafely);
+        } catch (RejectedExecutionException e) {
+            log.debug("Profile status flusher is stopped");
+        }
+    }
+
+    /** Записать всё, что накопилось; только поток флашера (и shutdown) */
+    private void flush() {
+        flushLock.lock();
+        try {
+            if (pending.isEmpty()) return;
+
+            List<Pending> batch = new ArrayList<>(pending.size());
+            for (Long id : pending.keySet()) {
+                Pending p = pending.remove(id);
+                if (p != null) batch.add(p);
+            }
+            if (batch.isEmpty()) return;
+
+            Timestamp now = Timestamp.from(Instant.now());
+            int[] counts;
+            try {
+                counts = tx.execute(status -> writeBatch(batch, now));
+            } catch (Exception e) {
+                log.warn("Profile status batch ({} rows) failed, retrying row by row: {}", batch.size(), e.getMessage());
+                writeOneByOne(batch, now);
+                return;
+            }
+            // после коммита: кэш, ожидающие, события
+            List<Long> notUpdated = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                if (counts[i] == 0) notUpdated.add(batch.get(i).change.profileId());
+            }
+            Set<Long> existing = existingIds(notUpdated);
+            for (int i = 0; i < batch.size(); i++) {
+                // драйвер может вернуть SUCCESS_NO_INFO (-2) — считаем, что строка обновлена
+                Pending p = batch.get(i);
+                written(p, counts[i] != 0, counts[i] != 0 || existing.contains(p.change.profileId()));
+            }
+            batchSize.record(batch.size());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int[] writeBatch(List<Pending> batch, Timestamp now) {
+        return jdbcTemplate.batchUpdate(UPDATE_SQL, batch, batch.size(), (ps, p) -> bind(ps, p.change, now))[0];
+    }
+
+    private void writeOneByOne(List<Pending> batch, Timestamp now) {
+        for (Pending p : batch) {
+            Integer count;
+            try {
+                count = tx.execute(status -> jdbcTemplate.update(UPDATE_SQL, ps -> bind(ps, p.change, now)));
+            } catch (Exception e) {
+                log.error("Profile {} status update failed: {}", p.change.profileId(), e.getMessage());
+                p.fail(e);
+                continue;
+            }
+            boolean updated = count != null && count != 0;
+            written(p, updated, updated || !existingIds(List.of(p.change.profileId())).isEmpty());
+        }
+    }
+
+    // 0 строк — либо профиля нет, либо его держит чужая аренда; различаем одним запросом на батч
+    private Set<Long> existingIds(List<Long> ids) {
+        if (ids.isEmpty()) return Set.of();
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id FROM profiles WHERE id = ANY(?)", Long.class, (Object) ids.toArray(new Long[0])));
+    }
+
+    private void written(Pending p, boolean updated, boolean exists) {
+        StatusChange c = p.change;
+        profileCache.invalidate(c.profileId());
+        p.complete(exists);
+        writtenCounter.increment();
+        if (!updated) {
+            if (exists) {
+                skippedCounter.increment();
+                log.debug("Profile {} status {} skipped: leased by another holder", c.profileId(), c.status());
+            }
+            return;
+        }
+        if (c.status() != null) {
+            eventPublisher.publishEvent(ProfileLifecycleEvent.of(
+                    ProfileLifecycleEvent.STATUS, c.profileId(), c.status(), c.holder()));
+        }
+    }
+
+    private static void bind(PreparedStatement ps, StatusChange c, Timestamp now) throws SQLException {
+        ps.setString(1, c.status());
+        ps.setTimestamp(2, c.lastUsedAt() != null ? Timestamp.from(c.lastUsedAt()) : null);
+        ps.setTimestamp(3, now);
+        ps.setLong(4, c.profileId());
+        ps.setString(5, c.holder());
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Profile status flush failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        flushSafely();
+    }
+
+    /**
+     * Изменение статуса. null в status / lastUsedAt — не менять.
+     * holder — от чьего имени пишется; null — без аренды: строка с живой арендой пропускается.
+     */
+    public record StatusChange(Long profileId, String status, Instant lastUsedAt, String holder) {
+
+        public static StatusChange status(Long profileId, String status) {
+            return new StatusChange(profileId, status, null, null);
+        }
+
+        StatusChange mergedWith(StatusChange newer) {
+            return new StatusChange(profileId,
+                    newer.status != null ? newer.status : status,
+                    newer.lastUsedAt != null ? newer.lastUsedAt : lastUsedAt,
+                    newer.holder);
+        }
+    }
+
+    private static final class Pending {
+        private StatusChange change;
+        private final List<CompletableFuture<Boolean>> waiters = new ArrayList<>(1);
+
+        private Pending(StatusChange change, CompletableFuture<Boolean> waiter) {
+            this.change = change;
+            this.waiters.add(waiter);
+        }
+
+        private void merge(StatusChange newer, CompletableFuture<Boolean> waiter) {
+            change = change.mergedWith(newer);
+            waiters.add(waiter);
+        }
+
+        private void complete(boolean updated) {
+            waiters.forEach(w -> w.complete(updated));
+        }
+
+        private void fail(Throwable e) {
+            waiters.forEach(w -> w.completeExceptionally(e));
+        }
+    }
+}
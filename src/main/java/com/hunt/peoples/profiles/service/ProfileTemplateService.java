@@ -0,0 +1,276 @@
+package com.hunt.peoples.profiles.service;
+
+import com.github.dockerjava.api.DockerClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Эталонная (template) user-data директория — одна на версию образа браузера.
+ *
+ * Новый профиль вместо пустой папки получает копию эталона: first-run базы и скачанные
+ * компоненты Chrome уже на месте, первый старт не тратит на них время. Каталоги компонентов
+ * (profile.template.hardlink-dirs) Chrome не меняет на месте, а ставит новые версии рядом —
+ * их файлы жёстко линкуются, остальное копируется параллельно. Если hard link невозможен
+ * (другая ФС) — обычная копия.
+ *
+ * Эталон снимается с чистого, остановленного профиля (capture) без данных, по которым
+ * профили можно связать между собой: куки, история, хранилища сайтов, Local State,
+ * Preferences и Secure Preferences.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfileTemplateService {
+
+    private static final String READY_MARKER = ".template-ready";
+
+    private final DockerClient dockerClient;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${profile.template.enabled:true}")
+    private boolean enabled;
+
+    @Value("${profile.template.dir:./profiles-template}")
+    private String templateDir;
+
+    // Явная версия эталона; пусто — id образа браузера из Docker
+    @Value("${profile.template.version:}")
+    private String configuredVersion;
+
+    @Value("${profile.template.image:multi-browser-chrome-vnc}")
+    private String imageName;
+
+    @Value("${profile.template.copy-threads:4}")
+    private int copyThreads;
+
+    @Value("${profile.template.hardlink-dirs:WidevineCdm,hyphen-data,ZxcvbnData,Subresource Filter,"
+            + "OnDeviceHeadSuggestModel,SafetyTips,CertificateRevocation,FileTypePolicies,MEIPreload,"
+            + "TrustTokenKeyCommitments,OriginTrials,PKIMetadata,FirstPartySetsPreloaded,SSLErrorAssistant,"
+            + "Crowd Deny,AutofillStates,optimization_guide_model_store,pnacl}")
+    private String hardlinkDirList;
+
+    // Идентифицирующие данные и пересоздаваемые кэши — в эталон не попадают.
+    // Preferences / Secure Preferences несут per-profile seed'ы, account info и HMAC
+    // от machine id — Chrome создаёт их заново при первом старте
+    @Value("${profile.template.capture-exclude:Cookies,Cookies-journal,History,History-journal,Login Data,"
+            + "Preferences,Secure Preferences,"
+            + "Login Data-journal,Login Data For Account,Web Data,Web Data-journal,Visited Links,Top Sites,"
+            + "Favicons,Shortcuts,Sessions,Session Storage,Local Storage,IndexedDB,Service Worker,"
+            + "File System,Network,Local State,Cache,Code Cache,GPUCache,GrShaderCache,ShaderCache,"
+            + "DawnCache,CacheStorage,Crashpad,SingletonLock,SingletonCookie,SingletonSocket}")
+    private String captureExcludeList;
+
+    private Set<String> hardlinkDirs;
+    private Set<String> captureExclude;
+    private volatile String resolvedVersion;
+    private ExecutorService copyPool;
+    private Timer seedTimer;
+
+    @PostConstruct
+    public void init() {
+        hardlinkDirs = splitList(hardlinkDirList);
+        captureExclude = splitList(captureExcludeList);
+        copyPool = Executors.newFixedThreadPool(Math.max(1, copyThreads), r -> {
+            Thread t = new Thread(r, "profile-template-copy");
+            t.setDaemon(true);
+            return t;
+        });
+        seedTimer = meterRegistry.timer("profile.template.seed.duration");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        copyPool.shutdownNow();
+    }
+
+    /**
+     * Версия эталона: profile.template.version или короткий id образа браузера.
+     */
+    public String currentVersion() {
+        if (configuredVersion != null && !configuredVersion.isBlank()) return configuredVersion;
+        String v = resolvedVersion;
+        if (v == null) {
+            try {
+                String id = dockerClient.inspectImageCmd(imageName).exec().getId();
+                v = id.replace("sha256:", "").substring(0, 12);
+            } catch (Exception e) {
+                log.warn("Cannot resolve image id for {}: {}", imageName, e.getMessage());
+                return "latest";
+            }
+            resolvedVersion = v;
+        }
+        return v;
+    }
+
+    /** Готовый эталон для текущей версии образа */
+    public Optional<Path> currentTemplate() {
+        if (!enabled) return Optional.empty();
+        Path dir = Paths.get(templateDir).toAbsolutePath().resolve(currentVersion());
+        return Files.exists(dir.resolve(READY_MARKER)) ? Optional.of(dir) : Optional.empty();
+    }
+
+    /**
+     * Заполнить новую директорию профиля из эталона. false — эталона нет или target не пустая.
+     */
+    public boolean seed(Path target) {
+        Optional<Path> template = currentTemplate();
+        if (template.isEmpty()) return false;
+
+        try {
+            if (Files.isDirectory(target)) {
+                try (Stream<Path> entries = Files.list(target)) {
+                    if (entries.findAny().isPresent()) return false;
+                }
+            }
+            long started = System.nanoTime();
+            int[] counts = copyTree(template.get(), target.toAbsolutePath(), Set.of(READY_MARKER), true);
+            long tookNanos = System.nanoTime() - started;
+            seedTimer.record(tookNanos, TimeUnit.NANOSECONDS);
+            log.info("Seeded {} from template {} in {} ms ({} copied, {} linked)",
+                    target, template.get().getFileName(), tookNanos / 1_000_000, counts[0], counts[1]);
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to seed {} from template, falling back to empty dir: {}", target, e.getMessage());
+            // недокопированный эталон хуже пустой папки
+            try {
+                if (Files.exists(target)) deleteRecursively(target);
+            } catch (IOException ignored) {
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Снять эталон для текущей версии образа с остановленного профиля.
+     * Старый эталон этой версии заменяется только после полной записи нового.
+     */
+    public Path capture(Path source) {
+        if (!Files.isDirectory(source)) {
+            throw new IllegalArgumentException("Profile directory does not exist: " + source);
+        }
+        Path root = Paths.get(templateDir).toAbsolutePath();
+        String version = currentVersion();
+        Path target = root.resolve(version);
+        Path tmp = root.resolve(version + ".tmp");
+
+        try {
+            Files.createDirectories(root);
+            if (Files.exists(tmp)) deleteRecursively(tmp);
+
+            int[] counts = copyTree(source.toAbsolutePath(), tmp, captureExclude, false);
+            Files.createFile(tmp.resolve(READY_MARKER));
+
+            if (Files.exists(target)) deleteRecursively(target);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+
+            log.info("Captured profile template {} from {} ({} files)", version, source, counts[0]);
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to capture profile template from " + source, e);
+        }
+    }
+
+    /**
+     * Обход source: каталоги создаются сразу, файлы копируются в пуле. Возвращает {copied, linked}.
+     */
+    private int[] copyTree(Path source, Path target, Set<String> exclude, boolean allowLinks) throws IOException {
+        AtomicInteger copied = new AtomicInteger();
+        AtomicInteger linked = new AtomicInteger();
+        List<Future<?>> pending = new ArrayList<>();
+
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(source) && exclude.contains(dir.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!attrs.isRegularFile() || exclude.contains(file.getFileName().toString())) {
+                    return FileVisitResult.CONTINUE;
+                }
+                Path relative = source.relativize(file);
+                Path dest = target.resolve(relative);
+                boolean link = allowLinks && relative.getNameCount() > 1
+                        && hardlinkDirs.contains(relative.getName(0).toString());
+
+                pending.add(copyPool.submit(() -> {
+                    if (link && tryLink(dest, file)) {
+                        linked.incrementAndGet();
+                    } else {
+                        Files.copy(file, dest, StandardCopyOption.REPLACE_EXISTING,
+                                StandardCopyOption.COPY_ATTRIBUTES);
+                        copied.incrementAndGet();
+                    }
+                    return null;
+                }));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        for (Future<?> f : pending) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while copying " + source, e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            }
+        }
+        return new int[]{copied.get(), linked.get()};
+    }
+
+    private static boolean tryLink(Path dest, Path existing) {
+        try {
+            Files.createLink(dest, existing);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    private static Set<String> splitList(String list) {
+        return Arrays.stream(list.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+}
@@ -0,0 +1,499 @@
+package com.hunt.peoples.profiles.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Перенос профиля между хостами: строка profiles + куки + user-data директория одним zip-потоком.
+ *
+ * Формат: profile.json, cookies.json, data/<путь> (по возрастанию пути), manifest.json последним —
+ * размеры и SHA-256 всех файлов. Экспорт пишет прямо в ответ, хэши считаются на лету, временных
+ * файлов нет. Кэши Chrome (profile.archive.exclude) не переносятся.
+ *
+ * Импорт идёт в staging-каталог importId: каждый файл сначала .part, после проверки CRC записи
+ * переименовывается и его хэш дописывается в hashes.tsv. Оборванный поток не теряет принятое:
+ * клиент берёт lastEntry из статуса и повторяет экспорт с after=lastEntry в тот же importId.
+ * Когда приходит manifest, все файлы сверяются с ним, и только тогда профиль создаётся.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfileTransferService {
+
+    private static final String PROFILE_ENTRY = "profile.json";
+    private static final String COOKIES_ENTRY = "cookies.json";
+    private static final String MANIFEST_ENTRY = "manifest.json";
+    private static final String DATA_PREFIX = "data/";
+    private static final String HASHES_FILE = "hashes.tsv";
+    private static final Pattern IMPORT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    // привязаны к хосту или к текущему состоянию — при импорте не переносятся
+    private static final Set<String> HOST_COLUMNS = Set.of(
+            "id", "version", "status", "locked_by_user_id", "lease_expires_at", "last_used_at",
+            "user_data_path", "archive_path", "archived_at", "archive_size_bytes");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final ProfileCookieStore cookieStore;
+    private final ProfileArchiveService archiveService;
+    private final ProfileDiskUsageService diskUsageService;
+
+    @Value("${profile.transfer.staging-dir:./profiles-import}")
+    private String stagingDir;
+
+    @Value("${profile.transfer.profiles-dir:profiles}")
+    private String profilesDir;
+
+    private final ConcurrentHashMap<String, ReentrantLock> importLocks = new ConcurrentHashMap<>();
+
+    // ----------------------------------------------------------------------------------------
+    // Экспорт
+    // ----------------------------------------------------------------------------------------
+
+    /**
+     * Проверить, что профиль можно выгружать, и развернуть его из холодного архива.
+     * Пусто — профиля нет; IllegalStateException — профиль занят.
+     */
+    public Optional<ExportSource> prepareExport(Long profileId) {
+        Map<String, Object> row;
+        try {
+            row = jdbcTemplate.queryForMap("SELECT * FROM profiles WHERE id = ?", profileId);
+        } catch (EmptyResultDataAccessException e) {
+            return Optional.empty();
+        }
+        if (!"FREE".equals(row.get("status"))) {
+            throw new IllegalStateException("Profile " + profileId + " is " + row.get("status") + ", stop it first");
+        }
+        String userDataPath = (String) row.get("user_data_path");
+        if (userDataPath != null && !userDataPath.isBlank()) {
+            archiveService.restoreIfArchived(profileId, userDataPath);
+        }
+        return Optional.of(new ExportSource(profileId, (String) row.get("external_key"), row,
+                userDataPath != null && !userDataPath.isBlank() ? Paths.get(userDataPath) : null));
+    }
+
+    /**
+     * Записать архив профиля в out. after — последний уже принятый путь (data/...):
+     * файлы до него включительно не отправляются, но их хэши всё равно попадают в manifest.
+     */
+    public void writeExport(ExportSource source, String after, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, 1 << 16));
+        zip.setLevel(Deflater.BEST_SPEED);
+
+        writeJsonEntry(zip, PROFILE_ENTRY, rowToJson(source.row()));
+        String cookies = cookieStore.loadCookiesJson(source.profileId());
+        if (cookies != null) {
+            writeJsonEntry(zip, COOKIES_ENTRY, objectMapper.readTree(cookies));
+        }
+
+        ArrayNode files = objectMapper.createArrayNode();
+        long sent = 0;
+        for (Path file : listDataFiles(source.dataDir())) {
+            String name = DATA_PREFIX + source.dataDir().relativize(file).toString().replace('\\', '/');
+            MessageDigest sha = sha256();
+            long size;
+            if (after != null && name.compareTo(after) <= 0) {
+                // уже у получателя — только хэш для manifest
+                try (InputStream in = new DigestInputStream(Files.newInputStream(file), sha)) {
+                    size = in.transferTo(OutputStream.nullOutputStream());
+                }
+            } else {
+                ZipEntry entry = new ZipEntry(name);
+                entry.setLastModifiedTime(Files.getLastModifiedTime(file));
+                zip.putNextEntry(entry);
+                DigestOutputStream digestOut = new DigestOutputStream(zip, sha);
+                size = Files.copy(file, digestOut);
+                zip.closeEntry();
+                sent++;
+            }
+            files.addObject().put("path", name).put("size", size).put("sha256", HexFormat.of().formatHex(sha.digest()));
+        }
+
+        ObjectNode manifest = objectMapper.createObjectNode();
+        manifest.put("profileId", source.profileId());
+        manifest.put("externalKey", source.externalKey());
+        manifest.put("exportedAt", Instant.now().toString());
+        manifest.set("files", files);
+        writeJsonEntry(zip, MANIFEST_ENTRY, manifest);
+        zip.finish();
+        zip.flush();
+
+        log.info("Exported profile {} ({} files, {} sent{})", source.profileId(), files.size(), sent,
+                after != null ? ", resumed after " + after : "");
+    }
+
+    // ----------------------------------------------------------------------------------------
+    // Импорт
+    // ----------------------------------------------------------------------------------------
+
+    /**
+     * Принять (часть) архива. Оборванный поток — статус INCOMPLETE с lastEntry для продолжения.
+     * IllegalArgumentException — неверный importId/архив; IllegalStateException — конфликт.
+     */
+    public ImportStatus importArchive(String importId, InputStream body) {
+        Path staging = stagingPath(importId);
+        ReentrantLock lock = importLocks.computeIfAbsent(importId, id -> new ReentrantLock());
+        if (!lock.tryLock()) {
+            throw new IllegalStateException("Import " + importId + " is already receiving data");
+        }
+        try {
+            Files.createDirectories(staging.resolve("data"));
+            Map<String, String> hashes = readHashes(staging);
+
+            JsonNode manifest = null;
+            String error = null;
+            try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(body, 1 << 16))) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    String name = entry.getName();
+                    if (entry.isDirectory()) continue;
+
+                    if (MANIFEST_ENTRY.equals(name)) {
+                        manifest = objectMapper.readTree(zip.readAllBytes());
+                    } else if (PROFILE_ENTRY.equals(name) || COOKIES_ENTRY.equals(name)) {
+                        receiveFile(zip, staging.resolve(name));
+                    } else if (name.startsWith(DATA_PREFIX)) {
+                        Path target = resolveInside(staging, name);
+                        String sha = receiveFile(zip, target);
+                        hashes.put(name, sha);
+                        appendHash(staging, name, sha);
+                    } else {
+                        throw new IllegalArgumentException("Unexpected archive entry: " + name);
+                    }
+                }
+            } catch (IOException e) {
+                // обрыв соединения или битая запись: принятые файлы остаются в staging
+                error = e.getMessage();
+                log.warn("Import {} interrupted: {}", importId, e.getMessage());
+            }
+
+            if (manifest == null) {
+                return status(importId, staging, hashes, "INCOMPLETE", null, error);
+            }
+            return commit(importId, staging, hashes, manifest);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Import " + importId + " failed", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Статус импорта по staging-каталогу. Пусто — такого importId нет. */
+    public Optional<ImportStatus> getImportStatus(String importId) {
+        Path staging = stagingPath(importId);
+        if (!Files.isDirectory(staging)) return Optional.empty();
+        try {
+            return Optional.of(status(importId, staging, readHashes(staging), "INCOMPLETE", null, null));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Отменить импорт и удалить принятое; false — такого importId нет */
+    public boolean abortImport(String importId) {
+        Path staging = stagingPath(importId);
+        ReentrantLock lock = importLocks.computeIfAbsent(importId, id -> new ReentrantLock());
+        if (!lock.tryLock()) {
+            throw new IllegalStateException("Import " + importId + " is receiving data");
+        }
+        try {
+            if (!Files.isDirectory(staging)) return false;
+            deleteTree(staging);
+            importLocks.remove(importId);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ImportStatus commit(String importId, Path staging, Map<String, String> hashes, JsonNode manifest)
+            throws IOException {
+        Path profileJson = staging.resolve(PROFILE_ENTRY);
+        if (!Files.exists(profileJson)) {
+            throw new IllegalArgumentException("Archive has no " + PROFILE_ENTRY);
+        }
+
+        // сверка: каждый файл из manifest принят с тем же хэшем, лишних нет
+        Set<String> expected = new HashSet<>();
+        for (JsonNode f : manifest.path("files")) {
+            String path = f.path("path").asText();
+            expected.add(path);
+            String actual = hashes.get(path);
+            if (!f.path("sha256").asText().equals(actual)) {
+                // продолжать с такого состояния нельзя — начинаем перенос заново
+                deleteTree(staging);
+                throw new IllegalStateException("Checksum mismatch for " + path + ", import " + importId
+                        + " discarded, restart the transfer");
+            }
+        }
+        for (String path : hashes.keySet()) {
+            if (!expected.contains(path)) {
+                Files.deleteIfExists(resolveInside(staging, path));
+            }
+        }
+
+        JsonNode row = objectMapper.readTree(profileJson.toFile());
+        String externalKey = row.path("external_key").asText(null);
+        if (externalKey == null) {
+            throw new IllegalArgumentException("profile.json has no external_key");
+        }
+        Integer exists = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM profiles WHERE external_key = ?", Integer.class, externalKey);
+        if (exists != null && exists > 0) {
+            throw new IllegalStateException("Profile with externalKey " + externalKey + " already exists on this host");
+        }
+
+        // id берём сами: pooled-оптимизатор Hibernate значение nextval целиком отдаёт тому, кто его получил
+        Long newId = jdbcTemplate.queryForObject("SELECT nextval('profiles_seq')", Long.class);
+        Path dataDir = Paths.get(profilesDir, "profile_" + newId);
+        Files.createDirectories(dataDir.toAbsolutePath().getParent());
+        Files.move(staging.resolve("data"), dataDir);
+
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+                insertProfileRow(newId, dataDir.toString(), row);
+                Path cookies = staging.resolve(COOKIES_ENTRY);
+                if (Files.exists(cookies)) {
+                    try {
+                        cookieStore.saveCookies(newId, objectMapper.readTree(cookies.toFile()));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // строка не создана — данные обратно в staging, импорт можно повторить
+            Files.move(dataDir, staging.resolve("data"));
+            throw e;
+        }
+
+        deleteTree(staging);
+        importLocks.remove(importId);
+        diskUsageService.rescanAsync(newId);
+        log.info("Imported profile {} as id={} ({} files)", externalKey, newId, expected.size());
+        return new ImportStatus(importId, "IMPORTED", newId, externalKey, expected.size(), null, null);
+    }
+
+    private void insertProfileRow(Long id, String userDataPath, JsonNode row) {
+        Map<String, String> columnTypes = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT column_name,
+                       CASE WHEN data_type IN ('ARRAY', 'USER-DEFINED') THEN udt_name ELSE data_type END
+                FROM information_schema.columns
+                WHERE table_schema = current_schema() AND table_name = 'profiles'
+                """, rs -> {
+            columnTypes.put(rs.getString(1), rs.getString(2));
+        });
+
+        List<String> columns = new ArrayList<>(List.of("id", "user_data_path", "status"));
+        List<String> placeholders = new ArrayList<>(List.of("?", "?", "?"));
+        List<Object> args = new ArrayList<>(List.of(id, userDataPath, "FREE"));
+
+        for (Map.Entry<String, JsonNode> field : row.properties()) {
+            String column = field.getKey();
+            String type = columnTypes.get(column);
+            // колонки, которых на этом хосте нет (другая версия схемы), пропускаем
+            if (type == null || HOST_COLUMNS.contains(column)) continue;
+
+            columns.add(column);
+            JsonNode value = field.getValue();
+            if (value == null || value.isNull()) {
+                placeholders.add("CAST(? AS " + type + ")");
+                args.add(null);
+            } else {
+                placeholders.add(isNative(type) ? "?" : "CAST(? AS " + type + ")");
+                args.add(convert(value, type));
+            }
+        }
+
+        String sql = "INSERT INTO profiles (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", placeholders) + ")";
+        jdbcTemplate.update(sql, args.toArray());
+    }
+
+    private static boolean isNative(String type) {
+        return switch (type) {
+            case "bigint", "integer", "smallint", "double precision", "real", "numeric", "boolean",
+                 "timestamp with time zone", "timestamp without time zone", "bytea",
+                 "text", "character varying" -> true;
+            default -> false;
+        };
+    }
+
+    private static Object convert(JsonNode value, String type) {
+        return switch (type) {
+            case "bigint" -> value.asLong();
+            case "integer", "smallint" -> value.asInt();
+            case "double precision", "real" -> value.asDouble();
+            case "numeric" -> new BigDecimal(value.asText());
+            case "boolean" -> value.asBoolean();
+            case "timestamp with time zone", "timestamp without time zone" -> Timestamp.from(Instant.parse(value.asText()));
+            case "bytea" -> Base64.getDecoder().decode(value.asText());
+            default -> value.isTextual() ? value.asText() : value.toString();
+        };
+    }
+
+    private ObjectNode rowToJson(Map<String, Object> row) {
+        ObjectNode node = objectMapper.createObjectNode();
+        row.forEach((column, value) -> {
+            if (value == null) {
+                node.putNull(column);
+            } else if (value instanceof Timestamp ts) {
+                node.put(column, ts.toInstant().toString());
+            } else if (value instanceof byte[] bytes) {
+                node.put(column, Base64.getEncoder().encodeToString(bytes));
+            } else {
+                node.set(column, objectMapper.valueToTree(value instanceof Number || value instanceof Boolean
+                        ? value : value.toString()));
+            }
+        });
+        return node;
+    }
+
+    private ImportStatus status(String importId, Path staging, Map<String, String> hashes, String state,
+                                Long profileId, String error) throws IOException {
+        String lastEntry = hashes.keySet().stream().max(Comparator.naturalOrder()).orElse(null);
+        String externalKey = null;
+        Path profileJson = staging.resolve(PROFILE_ENTRY);
+        if (Files.exists(profileJson)) {
+            externalKey = objectMapper.readTree(profileJson.toFile()).path("external_key").asText(null);
+        }
+        return new ImportStatus(importId, state, profileId, externalKey, hashes.size(), lastEntry, error);
+    }
+
+    /** Записать текущую запись zip в target через .part; CRC проверяет ZipInputStream в конце записи */
+    private String receiveFile(ZipInputStream zip, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        MessageDigest sha = sha256();
+        try (OutputStream out = new DigestOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(part), 1 << 16), sha)) {
+            zip.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return HexFormat.of().formatHex(sha.digest());
+    }
+
+    private Map<String, String> readHashes(Path staging) throws IOException {
+        Map<String, String> hashes = new HashMap<>();
+        Path file = staging.resolve(HASHES_FILE);
+        if (!Files.exists(file)) return hashes;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int tab = line.indexOf('\t');
+            // последняя строка могла не дописаться при падении
+            if (tab == 64) hashes.put(line.substring(tab + 1), line.substring(0, tab));
+        }
+        return hashes;
+    }
+
+    private void appendHash(Path staging, String name, String sha) throws IOException {
+        Files.writeString(staging.resolve(HASHES_FILE), sha + "\t" + name + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private Path stagingPath(String importId) {
+        if (importId == null || !IMPORT_ID.matcher(importId).matches()) {
+            throw new IllegalArgumentException("importId must match " + IMPORT_ID.pattern());
+        }
+        return Paths.get(stagingDir).toAbsolutePath().resolve(importId);
+    }
+
+    private static Path resolveInside(Path root, String name) {
+        Path p = root.resolve(name).normalize();
+        if (!p.startsWith(root.resolve("data"))) {
+            throw new IllegalArgumentException("Archive entry outside data dir: " + name);
+        }
+        return p;
+    }
+
+    private List<Path> listDataFiles(Path dataDir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (dataDir == null || !Files.isDirectory(dataDir)) return files;
+        Files.walkFileTree(dataDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(dataDir) && archiveService.isRegenerable(dir.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                // симлинки (Singleton*) не переносим
+                if (attrs.isRegularFile()) files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        // порядок записей = порядок строк, на нём держится after=
+        files.sort(Comparator.comparing(f -> dataDir.relativize(f).toString().replace('\\', '/')));
+        return files;
+    }
+
+    private void writeJsonEntry(ZipOutputStream zip, String name, JsonNode json) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(objectMapper.writeValueAsBytes(json));
+        zip.closeEntry();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) return;
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    public record ExportSource(Long profileId, String externalKey, Map<String, Object> row, Path dataDir) {
+    }
+
+    public record ImportStatus(String importId, String state, Long profileId, String externalKey,
+                               int filesReceived, String lastEntry, String error) {
+    }
+}
@@ -3,11 +3,14 @@ package com.hunt.peoples.profiles.service;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hunt.peoples.browser.config.BrowserProperties;
+import com.hunt.peoples.browser.dto.BulkCreateProfilesResponse;
+import com.hunt.peoples.browser.dto.CreateProfileRequest;
 import com.hunt.peoples.profiles.entity.DeviceProfile;
 import com.hunt.peoples.profiles.entity.Profile;
 import com.hunt.peoples.profiles.repository.ProfileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,12 +18,15 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.FileVisitResult;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
-import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -31,6 +37,19 @@ public class ProfilesService {
     private final BrowserProperties browserProperties;
     private final FingerprintGenerator fingerprintGenerator;
     private final ObjectMapper objectMapper;
+    private final ProfileCookieStore cookieStore;
+    private final ProfileStatusWriter statusWriter;
+    private final ProfileCache profileCache;
+    private final ProfileLeaseService leaseService;
+    private final ProfileDiskUsageService diskUsageService;
+    private final ProfileTemplateService templateService;
+    private final ProfileCleanupJob cleanupJob;
+
+    @Value("${profile.bulk.max-size:5000}")
+    private int bulkMaxSize;
+
+    @Value("${profile.bulk.chunk-size:500}")
+    private int bulkChunkSize;
 
     // Список мобильных устройств для случайного выбора
     private static final List<String> MOBILE_DEVICE_TYPES = Arrays.asList(
@@ -84,15 +103,21 @@ public class ProfilesService {
 
         // Если нет запроса на новые данные userAgent forceNew?
         if (!forceNew) {
-            // Если нет, ищем существующий профиль
+            // Если нет, ищем существующий профиль. Не из ProfileCache: профиль уйдёт в startBrowser,
+            // который его меняет и сохраняет — нужен свой экземпляр с актуальной @Version
             Optional<Profile> existingProfile = profileRepository.findByExternalKey(safeKey);
             if (existingProfile.isPresent()) {
                 Profile profile = existingProfile.get();
                 log.info("Found existing profile: id={}, userAgent={}",
                         profile.getId(), profile.getUserAgent());
 
+                boolean proxyChanged = proxyUrl != null && !proxyUrl.equals(profile.getProxyUrl());
+                if (proxyChanged || profile.needsFingerprintUpdate()) {
+                    profileCache.invalidate(profile);
+                }
+
                 // Обновляем прокси если нужно
-                if (proxyUrl != null && !proxyUrl.equals(profile.getProxyUrl())) {
+                if (proxyChanged) {
                     profile.setProxyUrl(proxyUrl);
                     profile.setUpdatedAt(Instant.now());
                     profileRepository.save(profile);
@@ -320,6 +345,7 @@ public class ProfilesService {
                     log.info("Updated fingerprint for profile {} to {} level",
                             profileId, detectionLevel);
 
+                    profileCache.invalidate(profileId);
                     return profileRepository.save(profile);
                 })
                 .orElseThrow(() -> {
@@ -489,6 +515,7 @@ public class ProfilesService {
                     existingProfile.getDetectionLevel()));
 
             log.info("Updated fingerprint for profile {} with new mobile device", existingProfile.getId());
+            profileCache.invalidate(existingProfile);
             return profileRepository.save(existingProfile);
 
         } catch (Exception e) {
@@ -663,8 +690,10 @@ public class ProfilesService {
             Files.createDirectories(profilePath);
             log.info("Created profile directory: {}", profilePath.toAbsolutePath());
 
-            // Создаем поддиректории
-            createProfileSubdirectories(profilePath);
+            // Эталон текущей версии образа, если он есть; иначе — пустой каркас
+            if (!templateService.seed(profilePath)) {
+                createProfileSubdirectories(profilePath);
+            }
 
             return userDataPath;
 
@@ -771,7 +800,8 @@ public class ProfilesService {
     }
 
     /**
-     * Получает профиль по ID или выбрасывает исключение
+     * Получает профиль по ID или выбрасывает исключение.
+     * Свежая сущность из БД (не из ProfileCache) — для запуска браузера и записи.
      */
     public Profile getProfileOrThrow(Long profileId) {
         return profileRepository.findById(profileId)
@@ -782,76 +812,68 @@ public class ProfilesService {
     }
 
     /**
-     * Обновляет статус профиля
+     * Обновляет статус профиля (синхронно: UPDATE уже выполнен к моменту возврата)
      */
-    @Transactional
-    public Profile updateProfileStatus(Long profileId, String status) {
+    public void updateProfileStatus(Long profileId, String status) {
         log.debug("Updating status for profile {} to {}", profileId, status);
 
-        return profileRepository.findById(profileId)
-                .map(profile -> {
-                    profile.setStatus(status);
-                    profile.setUpdatedAt(Instant.now());
-
-                    if ("BUSY".equals(status)) {
-                        profile.setLastUsedAt(Instant.now());
-                    }
+        applyStatusChange(statusChange(profileId, status), "status update");
+        log.info("Updated profile {} status to {}", profileId, status);
+    }
 
-                    Profile saved = profileRepository.save(profile);
-                    log.info("Updated profile {} status to {}", profileId, status);
-                    return saved;
-                })
-                .orElseThrow(() -> {
-                    log.error("Profile not found for status update: {}", profileId);
-                    return new RuntimeException("Profile not found: " + profileId);
-                });
+    /**
+     * Обновляет статус профиля через write-behind очередь (для массовых операций).
+     * Запись уйдёт ближайшим батчем; flushStatusUpdates() — дождаться её явно.
+     */
+    public CompletableFuture<Boolean> updateProfileStatusAsync(Long profileId, String status) {
+        return statusWriter.submit(statusChange(profileId, status));
     }
 
     /**
-     * Блокирует профиль пользователем
+     * Блокирует профиль пользователем (аренда с TTL по умолчанию, см. ProfileLeaseService).
+     * IllegalStateException — профиль держит другой пользователь.
      */
-    @Transactional
-    public Profile lockProfile(Long profileId, String userId) {
+    public ProfileLeaseService.Lease lockProfile(Long profileId, String userId) {
         log.info("Locking profile {} for user {}", profileId, userId);
 
-        return profileRepository.findById(profileId)
-                .map(profile -> {
-                    profile.setStatus("BUSY");
-                    profile.setLockedByUserId(userId);
-                    profile.setLastUsedAt(Instant.now());
-                    profile.setUpdatedAt(Instant.now());
+        ProfileLeaseService.Lease lease = leaseService.acquire(profileId, userId, null)
+                .orElseThrow(() -> new IllegalStateException(
+                        "Profile " + profileId + " is locked by another user or does not exist"));
+        log.info("Profile {} locked by user {}", profileId, userId);
+        return lease;
+    }
 
-                    Profile saved = profileRepository.save(profile);
-                    log.info("Profile {} locked by user {}", profileId, userId);
-                    return saved;
-                })
-                .orElseThrow(() -> {
-                    log.error("Profile not found for locking: {}", profileId);
-                    return new RuntimeException("Profile not found: " + profileId);
-                });
+    /** Держатель аренды по данным БД — запомнить до остановки браузера для unlockProfile */
+    public String getLeaseHolder(Long profileId) {
+        return leaseService.currentHolder(profileId);
     }
 
     /**
-     * Разблокирует профиль
+     * Разблокирует профиль (статус FREE), если его всё ещё держит expectedHolder —
+     * держатель, прочитанный до остановки. Запоздавший unlock не снимет чужую новую аренду.
      */
-    @Transactional
-    public Profile unlockProfile(Long profileId) {
-        log.info("Unlocking profile {}", profileId);
+    public boolean unlockProfile(Long profileId, String expectedHolder) {
+        log.info("Unlocking profile {} (holder {})", profileId, expectedHolder);
+        return leaseService.releaseIfHeldBy(profileId, expectedHolder);
+    }
 
-        return profileRepository.findById(profileId)
-                .map(profile -> {
-                    profile.setStatus("FREE");
-                    profile.setLockedByUserId(null);
-                    profile.setUpdatedAt(Instant.now());
+    /**
+     * Сбросить накопленные изменения статусов в БД (read-your-writes после *Async)
+     */
+    public void flushStatusUpdates() {
+        statusWriter.flushAndWait();
+    }
 
-                    Profile saved = profileRepository.save(profile);
-                    log.info("Profile {} unlocked", profileId);
-                    return saved;
-                })
-                .orElseThrow(() -> {
-                    log.error("Profile not found for unlocking: {}", profileId);
-                    return new RuntimeException("Profile not found: " + profileId);
-                });
+    private static ProfileStatusWriter.StatusChange statusChange(Long profileId, String status) {
+        return new ProfileStatusWriter.StatusChange(profileId, status,
+                "BUSY".equals(status) ? Instant.now() : null, null);
+    }
+
+    private void applyStatusChange(ProfileStatusWriter.StatusChange change, String action) {
+        if (!statusWriter.apply(change)) {
+            log.error("Profile not found for {}: {}", action, change.profileId());
+            throw new RuntimeException("Profile not found: " + change.profileId());
+        }
     }
 
     /**
@@ -881,8 +903,20 @@ public class ProfilesService {
             }
         }
 
+        // Холодный архив, если профиль был заархивирован
+        if (profile.getArchivePath() != null) {
+            try {
+                Files.deleteIfExists(Paths.get(profile.getArchivePath()));
+            } catch (IOException e) {
+                log.warn("Failed to delete profile archive {}: {}", profile.getArchivePath(), e.getMessage());
+            }
+        }
+
         // Удаляем профиль из БД
+        cookieStore.deleteCookies(profileId);
         profileRepository.delete(profile);
+        profileCache.invalidate(profileId);
+        diskUsageService.forget(profileId);
         log.info("Deleted profile from database: {}", profileId);
     }
 
@@ -890,55 +924,30 @@ public class ProfilesService {
      * Рекурсивное удаление директории
      */
     private void deleteDirectoryRecursively(Path path) throws IOException {
-        if (Files.isDirectory(path)) {
-            try (Stream<Path> stream = Files.list(path)) {
-                stream.forEach(p -> {
-                    try {
-                        deleteDirectoryRecursively(p);
-                    } catch (IOException e) {
-                        throw new RuntimeException("Failed to delete: " + p, e);
-                    }
-                });
+        // один обход дерева вместо Files.list на каждом уровне
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
             }
-        }
-        Files.delete(path);
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) throw exc;
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
     }
 
     /**
      * Получает информацию о размере директории профиля
      */
     public long getProfileDirectorySize(Long profileId) {
-        return profileRepository.findById(profileId)
-                .map(profile -> {
-                    String userDataPath = profile.getUserDataPath();
-                    if (userDataPath == null || userDataPath.trim().isEmpty()) {
-                        return 0L;
-                    }
-
-                    try {
-                        Path profilePath = Paths.get(userDataPath);
-                        if (!Files.exists(profilePath)) {
-                            return 0L;
-                        }
-
-                        try (Stream<Path> stream = Files.walk(profilePath)) {
-                            return stream
-                                    .filter(Files::isRegularFile)
-                                    .mapToLong(p -> {
-                                        try {
-                                            return Files.size(p);
-                                        } catch (IOException e) {
-                                            return 0L;
-                                        }
-                                    })
-                                    .sum();
-                        }
-                    } catch (IOException e) {
-                        log.warn("Failed to calculate directory size for profile {}: {}",
-                                profileId, e.getMessage());
-                        return 0L;
-                    }
-                })
+        // из фонового учёта (ProfileDiskUsageService), без обхода дерева на каждый запрос
+        return diskUsageService.getUsage(profileId)
+                .map(ProfileDiskUsageService.Usage::sizeBytes)
                 .orElse(0L);
     }
 
@@ -946,7 +955,7 @@ public class ProfilesService {
      * Проверяет, существует ли директория профиля
      */
     public boolean profileDirectoryExists(Long profileId) {
-        return profileRepository.findById(profileId)
+        return profileCache.findById(profileId)
                 .map(profile -> {
                     String userDataPath = profile.getUserDataPath();
                     if (userDataPath == null || userDataPath.trim().isEmpty()) {
@@ -981,10 +990,12 @@ public class ProfilesService {
                         if (!Files.exists(profilePath)) {
                             Files.createDirectories(profilePath);
                             createProfileSubdirectories(profilePath);
+                            diskUsageService.rescanAsync(profileId);
                             log.info("Restored profile directory: {}", profilePath);
                         }
 
                         profile.setUpdatedAt(Instant.now());
+                        profileCache.invalidate(profileId);
                         return profileRepository.save(profile);
 
                     } catch (IOException e) {
@@ -999,6 +1010,70 @@ public class ProfilesService {
                 });
     }
 
+    /**
+     * Массовое создание профилей.
+     * Профили генерируются в памяти (прокси/GeoIP — один раз на proxyUrl), затем сохраняются
+     * пачками по profile.bulk.chunk-size: каждая пачка — одна транзакция с JDBC-батчами INSERT.
+     * Существующие и повторяющиеся в запросе externalKey пропускаются.
+     */
+    public BulkCreateProfilesResponse bulkCreateProfiles(List<CreateProfileRequest> requests) {
+        if (requests.size() > bulkMaxSize) {
+            throw new IllegalArgumentException("Too many profiles in one request: " + requests.size()
+                    + " (max " + bulkMaxSize + ")");
+        }
+        long started = System.currentTimeMillis();
+
+        Map<String, CreateProfileRequest> byKey = new LinkedHashMap<>();
+        List<String> skipped = new ArrayList<>();
+        for (CreateProfileRequest request : requests) {
+            String key = sanitizeExternalKey(request.getExternalKey());
+            if (byKey.putIfAbsent(key, request) != null) {
+                skipped.add(key);
+            }
+        }
+
+        for (List<String> keys : chunks(new ArrayList<>(byKey.keySet()), bulkChunkSize)) {
+            for (String existing : profileRepository.findExistingExternalKeys(keys)) {
+                byKey.remove(existing);
+                skipped.add(existing);
+            }
+        }
+
+        List<FingerprintGenerator.ProfileSeed> seeds = new ArrayList<>(byKey.size());
+        byKey.forEach((key, r) -> seeds.add(new FingerprintGenerator.ProfileSeed(
+                key, r.getName(), r.getDeviceType(),
+                r.getDetectionLevel() != null ? r.getDetectionLevel() : "ENHANCED",
+                r.getProxyUrl())));
+        List<Profile> profiles = fingerprintGenerator.buildProfiles(seeds);
+
+        Map<String, Long> created = new LinkedHashMap<>();
+        for (List<Profile> chunk : chunks(profiles, bulkChunkSize)) {
+            for (Profile saved : profileRepository.saveAll(chunk)) {
+                created.put(saved.getExternalKey(), saved.getId());
+            }
+        }
+
+        long duration = System.currentTimeMillis() - started;
+        log.info("Bulk created {} profiles ({} skipped) in {} ms", created.size(), skipped.size(), duration);
+
+        return BulkCreateProfilesResponse.builder()
+                .requested(requests.size())
+                .createdCount(created.size())
+                .created(created)
+                .skippedExternalKeys(skipped)
+                .durationMs(duration)
+                .completedAt(Instant.now())
+                .build();
+    }
+
+    private static <T> List<List<T>> chunks(List<T> list, int size) {
+        List<List<T>> result = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += size) {
+            result.add(list.subList(i, Math.min(i + size, list.size())));
+        }
+        return result;
+    }
+
     /**
      * Получает список всех externalKeys
      */
@@ -1014,7 +1089,7 @@ public class ProfilesService {
      * Проверяет, существует ли профиль с данным externalKey
      */
     public boolean existsByExternalKey(String externalKey) {
-        return profileRepository.findByExternalKey(externalKey).isPresent();
+        return profileCache.findByExternalKey(externalKey).isPresent();
     }
 
     /**
@@ -1046,28 +1121,16 @@ public class ProfilesService {
     }
 
     /**
-     * Очищает старые профили (старше определенного времени)
+     * Очищает старые профили (старше определенного времени) и ждёт окончания.
+     * Порционная фоновая задача — ProfileCleanupJob, без одной транзакции на всё.
      */
-    @Transactional
     public int cleanupOldProfiles(int days) {
-        Instant cutoffDate = Instant.now().minusSeconds(days * 24L * 60 * 60);
-        List<Profile> oldProfiles = profileRepository.findByStatus("FREE").stream()
-                .filter(profile -> profile.getLastUsedAt() != null)
-                .filter(profile -> profile.getLastUsedAt().isBefore(cutoffDate))
-                .toList();
-
-        int deletedCount = 0;
-        for (Profile profile : oldProfiles) {
-            try {
-                deleteProfileWithDirectory(profile.getId());
-                deletedCount++;
-            } catch (Exception e) {
-                log.error("Failed to delete old profile {}: {}", profile.getId(), e.getMessage());
-            }
+        ProfileCleanupJob.Progress progress = cleanupJob.runAndWait(days);
+        if ("FAILED".equals(progress.getState())) {
+            throw new RuntimeException("Cleanup failed: " + progress.getError());
         }
-
-        log.info("Cleaned up {} old profiles (older than {} days)", deletedCount, days);
-        return deletedCount;
+        log.info("Cleaned up {} old profiles (older than {} days)", progress.getDeletedRows(), days);
+        return (int) progress.getDeletedRows();
     }
 
     /**
@@ -0,0 +1,140 @@
+-- Базовая схема (как её создавал Hibernate ddl-auto до появления миграций).
+-- На существующих БД эта версия не выполняется: Flyway делает baseline на V1 (см. FlywayConfig).
+
+CREATE TABLE IF NOT EXISTS profiles (
+    audio_context_latency float(53),
+    audio_sample_rate integer,
+    battery_charging boolean,
+    battery_charging_time integer,
+    battery_discharging_time integer,
+    battery_level float(53),
+    check_count integer,
+    connection_downlink float(53),
+    connection_rtt integer,
+    connection_save_data boolean,
+    cookie_enabled boolean,
+    detection_risk float(53),
+    device_memory integer,
+    geo_accuracy float(53),
+    geo_latitude float(53),
+    geo_longitude float(53),
+    hardware_concurrency integer,
+    is_active boolean,
+    max_touch_points integer,
+    mouse_movement_variance float(53),
+    online boolean,
+    pixel_ratio float(53),
+    screen_avail_height integer,
+    screen_avail_width integer,
+    screen_color_depth integer,
+    screen_height integer,
+    screen_pixel_depth integer,
+    screen_width integer,
+    scroll_speed float(53),
+    timezone_offset integer,
+    typing_speed integer,
+    ua_ch_mobile boolean,
+    created_at timestamp(6) with time zone not null,
+    fingerprint_created_at timestamp(6) with time zone,
+    fingerprint_updated_at timestamp(6) with time zone,
+    id bigint generated by default as identity,
+    injection_script_updated_at timestamp(6) with time zone,
+    last_checked_at timestamp(6) with time zone,
+    last_used_at timestamp(6) with time zone,
+    updated_at timestamp(6) with time zone not null,
+    fingerprint_hash varchar(32),
+    injection_script_hash varchar(64),
+    audio_channel_count varchar(255),
+    audio_fingerprint_json TEXT,
+    battery_info_json TEXT,
+    canvas_fingerprint varchar(255),
+    canvas_noise_hash varchar(255),
+    chrome_version varchar(255),
+    common_websites_json TEXT,
+    connection_effective_type varchar(255),
+    connection_info_json TEXT,
+    connection_type varchar(255),
+    detection_level varchar(255),
+    device_profile_json TEXT,
+    dns_servers_json TEXT,
+    do_not_track varchar(255),
+    external_key varchar(255) not null unique,
+    fonts_list_json TEXT,
+    geo_permission varchar(255),
+    injection_script TEXT,
+    language varchar(255),
+    last_check_result TEXT,
+    locale varchar(255),
+    locked_by_user_id varchar(255),
+    media_devices_json TEXT,
+    name varchar(255) not null,
+    navigator_info_json TEXT,
+    notification_permission varchar(255),
+    os_architecture varchar(255),
+    os_version varchar(255),
+    platform varchar(255),
+    plugins_json TEXT,
+    proxy_url varchar(255),
+    screen_color_gamut varchar(255),
+    speech_voices_json TEXT,
+    status varchar(255),
+    timezone varchar(255),
+    ua_ch_architecture varchar(255),
+    ua_ch_bitness varchar(255),
+    ua_ch_brands_json TEXT,
+    ua_ch_model varchar(255),
+    ua_ch_platform varchar(255),
+    ua_ch_platform_version varchar(255),
+    user_agent TEXT,
+    user_data_path varchar(255),
+    webgl_extensions_json TEXT,
+    webgl_renderer varchar(255),
+    webgl_vendor varchar(255),
+    webgl_version varchar(255),
+    webrtc_local_ip varchar(255),
+    webrtc_mode varchar(255),
+    webrtc_public_ip varchar(255),
+    cookies_json TEXT,
+    primary key (id)
+);
+
+CREATE TABLE IF NOT EXISTS fingerprint_checks (
+    automation_detected boolean,
+    automation_risk float(53),
+    canvas_consistent boolean,
+    canvas_risk float(53),
+    fonts_consistent boolean,
+    fonts_risk float(53),
+    headless_detected boolean,
+    needs_action boolean,
+    overall_risk float(53),
+    passed boolean,
+    proxy_detected boolean,
+    proxy_risk float(53),
+    timezone_consistent boolean,
+    web_driver_detected boolean,
+    webgl_consistent boolean,
+    webgl_risk float(53),
+    checked_at timestamp(6) with time zone,
+    created_at timestamp(6) with time zone,
+    id bigint generated by default as identity,
+    profile_id bigint not null,
+    response_time_ms bigint,
+    updated_at timestamp(6) with time zone,
+    action_taken varchar(255),
+    automation_details TEXT,
+    canvas_details TEXT,
+    country_code varchar(255),
+    fonts_details TEXT,
+    ip_address varchar(255),
+    recommendations TEXT,
+    referrer_url varchar(255),
+    risk_level varchar(255),
+    test_url varchar(255),
+    user_agent_used varchar(255),
+    webgl_details TEXT,
+    primary key (id)
+);
+
+ALTER TABLE fingerprint_checks
+    ADD CONSTRAINT fk_fingerprint_checks_profile FOREIGN KEY (profile_id) REFERENCES profiles (id);
@@ -0,0 +1,17 @@
+-- Пресет флагов Chrome на профиль и вынесенные из profiles куки (gzip, строка на домен)
+
+ALTER TABLE profiles ADD COLUMN IF NOT EXISTS chrome_preset varchar(255);
+
+CREATE TABLE IF NOT EXISTS profile_cookies (
+    cookie_count integer,
+    id bigint generated by default as identity,
+    profile_id bigint not null,
+    updated_at timestamp(6) with time zone,
+    content_hash varchar(64) not null,
+    domain varchar(255) not null,
+    cookies_gz bytea not null,
+    primary key (id),
+    constraint uk_profile_cookies_profile_domain unique (profile_id, domain)
+);
+
+CREATE INDEX IF NOT EXISTS idx_profile_cookies_profile ON profile_cookies (profile_id);
@@ -0,0 +1,23 @@
+-- Индексы под горячие запросы репозиториев
+
+-- ProfileRepository.findByStatus / countByStatus / countGroupByStatus,
+-- ProfilesService.cleanupOldProfiles (FREE + last_used_at)
+CREATE INDEX IF NOT EXISTS idx_profiles_status_last_used
+    ON profiles (status, last_used_at);
+
+-- ProfileRepository.findByDetectionRiskGreaterThanEqual / countByDetectionRiskGreaterThanEqual / findHighRiskProfiles
+CREATE INDEX IF NOT EXISTS idx_profiles_detection_risk
+    ON profiles (detection_risk);
+
+-- ProfileRepository.findProfilesWithOldFingerprint
+CREATE INDEX IF NOT EXISTS idx_profiles_fingerprint_updated_at
+    ON profiles (fingerprint_updated_at);
+
+-- FingerprintCheckRepository.findByProfileIdOrderByCheckedAtDesc / findLatestCheckByProfileId /
+-- findByProfileId(Pageable) / countByProfileId / getAverageRiskByProfileId
+CREATE INDEX IF NOT EXISTS idx_fingerprint_checks_profile_checked_at
+    ON fingerprint_checks (profile_id, checked_at DESC);
+
+-- FingerprintCheckRepository.deleteOldChecks / findChecksBetweenDates и агрегаты дашборда
+CREATE INDEX IF NOT EXISTS idx_fingerprint_checks_checked_at
+    ON fingerprint_checks (checked_at);
@@ -0,0 +1,5 @@
+-- Keyset-пагинация GET /api/profiles?keyset=true: seek по (sortBy, id)
+
+CREATE INDEX IF NOT EXISTS idx_profiles_created_at_id ON profiles (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_profiles_updated_at_id ON profiles (updated_at, id);
+CREATE INDEX IF NOT EXISTS idx_profiles_name_id ON profiles (name, id);
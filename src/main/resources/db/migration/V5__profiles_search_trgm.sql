@@ -0,0 +1,16 @@
+-- Поиск по профилям: триграммные GIN-индексы под lower(...) LIKE '%q%'
+-- и btree text_pattern_ops под префиксный поиск externalKey
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_profiles_name_trgm
+    ON profiles USING gin (lower(name) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_profiles_external_key_trgm
+    ON profiles USING gin (lower(external_key) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_profiles_user_agent_trgm
+    ON profiles USING gin (lower(user_agent) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_profiles_external_key_prefix
+    ON profiles (lower(external_key) text_pattern_ops);
@@ -0,0 +1,191 @@
+-- fingerprint_checks секционируется по месяцам (checked_at): retention = DROP старых секций вместо DELETE.
+-- fingerprint_check_daily — суточные агрегаты по профилю для статистики без чтения сырых строк.
+
+-- 1. Новая секционированная таблица рядом со старой
+ALTER TABLE fingerprint_checks RENAME TO fingerprint_checks_legacy;
+ALTER TABLE fingerprint_checks_legacy DROP CONSTRAINT IF EXISTS fk_fingerprint_checks_profile;
+DROP INDEX IF EXISTS idx_fingerprint_checks_profile_checked_at;
+DROP INDEX IF EXISTS idx_fingerprint_checks_checked_at;
+
+-- не fingerprint_checks_id_seq: так называется identity-последовательность старой таблицы
+CREATE SEQUENCE IF NOT EXISTS fingerprint_checks_seq;
+
+CREATE TABLE fingerprint_checks (
+    automation_detected boolean,
+    automation_risk float(53),
+    canvas_consistent boolean,
+    canvas_risk float(53),
+    fonts_consistent boolean,
+    fonts_risk float(53),
+    headless_detected boolean,
+    needs_action boolean,
+    overall_risk float(53),
+    passed boolean,
+    proxy_detected boolean,
+    proxy_risk float(53),
+    timezone_consistent boolean,
+    web_driver_detected boolean,
+    webgl_consistent boolean,
+    webgl_risk float(53),
+    checked_at timestamp(6) with time zone NOT NULL,
+    created_at timestamp(6) with time zone,
+    id bigint NOT NULL DEFAULT nextval('fingerprint_checks_seq'),
+    profile_id bigint not null,
+    response_time_ms bigint,
+    updated_at timestamp(6) with time zone,
+    action_taken varchar(255),
+    automation_details TEXT,
+    canvas_details TEXT,
+    country_code varchar(255),
+    fonts_details TEXT,
+    ip_address varchar(255),
+    recommendations TEXT,
+    referrer_url varchar(255),
+    risk_level varchar(255),
+    test_url varchar(255),
+    user_agent_used varchar(255),
+    webgl_details TEXT,
+    PRIMARY KEY (id, checked_at)
+) PARTITION BY RANGE (checked_at);
+
+ALTER SEQUENCE fingerprint_checks_seq OWNED BY fingerprint_checks.id;
+
+ALTER TABLE fingerprint_checks
+    ADD CONSTRAINT fk_fingerprint_checks_profile FOREIGN KEY (profile_id) REFERENCES profiles (id);
+
+CREATE INDEX idx_fingerprint_checks_profile_checked_at ON fingerprint_checks (profile_id, checked_at DESC);
+CREATE INDEX idx_fingerprint_checks_checked_at ON fingerprint_checks (checked_at);
+
+-- 2. Месячная секция fingerprint_checks_pYYYYMM (идемпотентно; вызывается и из FingerprintPartitionMaintenance)
+CREATE OR REPLACE FUNCTION ensure_fingerprint_checks_partition(p_month date) RETURNS void AS $$
+DECLARE
+    from_ts date := date_trunc('month', p_month)::date;
+    to_ts   date := (date_trunc('month', p_month) + interval '1 month')::date;
+    part    text := 'fingerprint_checks_p' || to_char(date_trunc('month', p_month), 'YYYYMM');
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF fingerprint_checks FOR VALUES FROM (%L) TO (%L)',
+                   part, from_ts, to_ts);
+END;
+$$ LANGUAGE plpgsql;
+
+-- секции под имеющиеся данные + текущий и два следующих месяца
+DO $$
+DECLARE
+    m date := date_trunc('month', COALESCE(
+            (SELECT MIN(COALESCE(checked_at, created_at)) FROM fingerprint_checks_legacy), now()))::date;
+BEGIN
+    WHILE m <= (date_trunc('month', now()) + interval '2 months')::date LOOP
+        PERFORM ensure_fingerprint_checks_partition(m);
+        m := (m + interval '1 month')::date;
+    END LOOP;
+END;
+$$;
+
+-- на случай строки вне всех секций (часы на хосте ушли вперёд и т.п.)
+CREATE TABLE IF NOT EXISTS fingerprint_checks_default PARTITION OF fingerprint_checks DEFAULT;
+
+-- 3. Перенос данных
+INSERT INTO fingerprint_checks (
+    automation_detected,
+    automation_risk,
+    canvas_consistent,
+    canvas_risk,
+    fonts_consistent,
+    fonts_risk,
+    headless_detected,
+    needs_action,
+    overall_risk,
+    passed,
+    proxy_detected,
+    proxy_risk,
+    timezone_consistent,
+    web_driver_detected,
+    webgl_consistent,
+    webgl_risk,
+    checked_at,
+    created_at,
+    id,
+    profile_id,
+    response_time_ms,
+    updated_at,
+    action_taken,
+    automation_details,
+    canvas_details,
+    country_code,
+    fonts_details,
+    ip_address,
+    recommendations,
+    referrer_url,
+    risk_level,
+    test_url,
+    user_agent_used,
+    webgl_details
+)
+SELECT
+    automation_detected,
+    automation_risk,
+    canvas_consistent,
+    canvas_risk,
+    fonts_consistent,
+    fonts_risk,
+    headless_detected,
+    needs_action,
+    overall_risk,
+    passed,
+    proxy_detected,
+    proxy_risk,
+    timezone_consistent,
+    web_driver_detected,
+    webgl_consistent,
+    webgl_risk,
+    COALESCE(checked_at, created_at, now()),
+    created_at,
+    id,
+    profile_id,
+    response_time_ms,
+    updated_at,
+    action_taken,
+    automation_details,
+    canvas_details,
+    country_code,
+    fonts_details,
+    ip_address,
+    recommendations,
+    referrer_url,
+    risk_level,
+    test_url,
+    user_agent_used,
+    webgl_details
+FROM fingerprint_checks_legacy;
+
+SELECT setval('fingerprint_checks_seq', COALESCE((SELECT MAX(id) FROM fingerprint_checks), 0) + 1, false);
+
+DROP TABLE fingerprint_checks_legacy;
+
+-- 4. Суточные агрегаты (день — по UTC)
+CREATE TABLE IF NOT EXISTS fingerprint_check_daily (
+    profile_id      bigint           NOT NULL,
+    day             date             NOT NULL,
+    checks_count    bigint           NOT NULL DEFAULT 0,
+    passed_count    bigint           NOT NULL DEFAULT 0,
+    high_risk_count bigint           NOT NULL DEFAULT 0,
+    risk_sum        double precision NOT NULL DEFAULT 0,
+    last_checked_at timestamp(6) with time zone,
+    last_risk       double precision,
+    PRIMARY KEY (profile_id, day)
+);
+
+CREATE INDEX IF NOT EXISTS idx_fingerprint_check_daily_day ON fingerprint_check_daily (day);
+
+INSERT INTO fingerprint_check_daily (profile_id, day, checks_count, passed_count, high_risk_count, risk_sum,
+                                     last_checked_at, last_risk)
+SELECT profile_id,
+       (checked_at AT TIME ZONE 'UTC')::date,
+       COUNT(*),
+       COUNT(*) FILTER (WHERE passed),
+       COUNT(*) FILTER (WHERE overall_risk >= 0.7),
+       COALESCE(SUM(overall_risk), 0),
+       MAX(checked_at),
+       (ARRAY_AGG(overall_risk ORDER BY checked_at DESC))[1]
+FROM fingerprint_checks
+GROUP BY profile_id, (checked_at AT TIME ZONE 'UTC')::date;
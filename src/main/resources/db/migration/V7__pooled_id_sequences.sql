@@ -0,0 +1,17 @@
+-- Pooled-генерация id (allocationSize = 50): Hibernate берёт nextval раз на 50 строк
+-- и может батчить INSERT'ы. С IDENTITY каждый INSERT — отдельный round-trip.
+
+-- profiles: identity -> последовательность profiles_seq
+ALTER TABLE profiles ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS profiles_seq INCREMENT BY 50;
+ALTER SEQUENCE profiles_seq OWNED BY profiles.id;
+ALTER TABLE profiles ALTER COLUMN id SET DEFAULT nextval('profiles_seq');
+
+-- pooled-оптимизатор трактует nextval как верхнюю границу блока: первый блок
+-- [v-49, v] должен начинаться выше текущего максимума
+SELECT setval('profiles_seq', COALESCE((SELECT MAX(id) FROM profiles), 0) + 50, false);
+
+-- fingerprint_checks: последовательность уже есть (V6), меняем только шаг
+ALTER SEQUENCE fingerprint_checks_seq INCREMENT BY 50;
+SELECT setval('fingerprint_checks_seq', COALESCE((SELECT MAX(id) FROM fingerprint_checks), 0) + 50, false);
@@ -0,0 +1,11 @@
+-- Аренда профиля (lease): захват одним условным UPDATE, продление heartbeat'ом,
+-- просроченные аренды освобождает фоновый sweep (ProfileLeaseService)
+
+ALTER TABLE profiles ADD COLUMN IF NOT EXISTS lease_expires_at timestamp(6) with time zone;
+
+-- оптимистическая блокировка (@Version) для правок профиля через JPA
+ALTER TABLE profiles ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_profiles_lease_expires_at
+    ON profiles (lease_expires_at)
+    WHERE lease_expires_at IS NOT NULL;
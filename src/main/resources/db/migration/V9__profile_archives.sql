@@ -0,0 +1,10 @@
+-- Архив холодных профилей: директория упакована в profile.archive.dir, локально её нет
+
+ALTER TABLE profiles ADD COLUMN IF NOT EXISTS archive_path varchar(1024);
+ALTER TABLE profiles ADD COLUMN IF NOT EXISTS archived_at timestamp(6) with time zone;
+ALTER TABLE profiles ADD COLUMN IF NOT EXISTS archive_size_bytes bigint;
+
+-- поиск кандидатов: свободные, давно не использованные, ещё не в архиве
+CREATE INDEX IF NOT EXISTS idx_profiles_archive_candidates
+    ON profiles (last_used_at)
+    WHERE status = 'FREE' AND archived_at IS NULL;
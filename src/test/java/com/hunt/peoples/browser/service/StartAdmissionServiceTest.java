@@ -0,0 +1,143 @@
+package com.hunt.peoples.browser.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Корзины, слоты запуска и расчёт Retry-After. Скорости пополнения выбраны так,
+ * чтобы за время теста не набежало ни одного лишнего токена.
+ */
+class StartAdmissionServiceTest {
+
+    private BrowserContainerService containers;
+    private SimpleMeterRegistry meterRegistry;
+    private StartAdmissionService service;
+
+    @BeforeEach
+    void setUp() {
+        containers = mock(BrowserContainerService.class);
+        when(containers.getMaxContainers()).thenReturn(100);
+        meterRegistry = new SimpleMeterRegistry();
+
+        service = new StartAdmissionService(containers, meterRegistry);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "clientRate", 0.01);
+        ReflectionTestUtils.setField(service, "clientBurst", 2);
+        ReflectionTestUtils.setField(service, "tenantRate", 0.5);
+        ReflectionTestUtils.setField(service, "tenantBurst", 3);
+        ReflectionTestUtils.setField(service, "maxConcurrentStarts", 2);
+        ReflectionTestUtils.setField(service, "capacityRetryAfterSec", 30L);
+        ReflectionTestUtils.setField(service, "initialStartMs", 20_000L);
+        service.init();
+    }
+
+    @Test
+    void clientBucketAllowsBurstThenRejectsWithTimeToNextToken() {
+        assertThat(service.tryAdmit("c1", null).admitted()).isTrue();
+        assertThat(service.tryAdmit("c1", null).admitted()).isTrue();
+
+        StartAdmissionService.Decision rejected = service.tryAdmit("c1", null);
+        assertThat(rejected.admitted()).isFalse();
+        assertThat(rejected.reason()).isEqualTo("client_rate");
+        // 0.01 токена в секунду — следующий примерно через 100 с
+        assertThat(rejected.retryAfterSeconds()).isBetween(99L, 100L);
+
+        // у другого клиента своя корзина
+        assertThat(service.tryAdmit("c2", null).admitted()).isTrue();
+        assertThat(meterRegistry.counter("admission.rejected", "reason", "client_rate").count()).isEqualTo(1);
+    }
+
+    @Test
+    void tenantRejectionRefundsClientToken() {
+        ReflectionTestUtils.setField(service, "clientBurst", 5);
+        for (int i = 0; i < 3; i++) {
+            assertThat(service.tryAdmit("c" + i, "t1").admitted()).isTrue();
+        }
+
+        StartAdmissionService.Decision rejected = service.tryAdmit("c9", "t1");
+        assertThat(rejected.reason()).isEqualTo("tenant_rate");
+        assertThat(rejected.retryAfterSeconds()).isEqualTo(2);
+
+        // отказ тенанта не должен съесть токен клиента: без тенанта c9 проходит burst раз
+        for (int i = 0; i < 5; i++) {
+            assertThat(service.tryAdmit("c9", null).admitted()).isTrue();
+        }
+        assertThat(service.tryAdmit("c9", null).admitted()).isFalse();
+    }
+
+    @Test
+    void concurrencyRetryAfterScalesWithQueueDepthAndStartSpeed() {
+        assertThat(service.tryAcquireSlot().admitted()).isTrue();
+        assertThat(service.tryAcquireSlot().admitted()).isTrue();
+
+        StartAdmissionService.Decision rejected = service.tryAcquireSlot();
+        assertThat(rejected.reason()).isEqualTo("concurrency");
+        // глубина 1 * 20 с / 2 параллельных = 10 с
+        assertThat(rejected.retryAfterSeconds()).isEqualTo(10);
+
+        // успешный старт за 5 с сдвигает EWMA: 20000 * 0.8 + 5000 * 0.2 = 17000 мс -> ceil(8.5) = 9
+        service.release(TimeUnit.SECONDS.toNanos(5), true);
+        service.tryAcquireSlot();
+        assertThat(service.tryAcquireSlot().retryAfterSeconds()).isEqualTo(9);
+
+        // неуспешный старт оценку не трогает
+        service.release(TimeUnit.SECONDS.toNanos(1), false);
+        service.tryAcquireSlot();
+        assertThat(service.tryAcquireSlot().retryAfterSeconds()).isEqualTo(9);
+    }
+
+    @Test
+    void capacityCountsRegisteredAndPendingContainersOnce() {
+        when(containers.getMaxContainers()).thenReturn(3);
+        when(containers.getActiveContainerCount()).thenReturn(2);
+        when(containers.getPendingStartCount()).thenReturn(0);
+
+        // один наш слот уже в полёте, его контейнер зарегистрирован и входит в active — место ещё есть
+        assertThat(service.tryAcquireSlot().admitted()).isTrue();
+        assertThat(service.tryAcquireSlot().admitted()).isTrue();
+
+        when(containers.getPendingStartCount()).thenReturn(1);
+        service.release(0, false);
+        StartAdmissionService.Decision rejected = service.tryAcquireSlot();
+        assertThat(rejected.reason()).isEqualTo("capacity");
+        assertThat(rejected.retryAfterSeconds()).isEqualTo(30);
+    }
+
+    @Test
+    void withStartSlotReleasesSlotAndRejectsWithoutRunningStart() {
+        assertThat(service.withStartSlot(() -> "ok")).isEqualTo("ok");
+        assertThat(service.getInFlight()).isZero();
+
+        assertThatThrownBy(() -> service.withStartSlot(() -> {
+            throw new IllegalStateException("docker down");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(service.getInFlight()).isZero();
+
+        service.tryAcquireSlot();
+        service.tryAcquireSlot();
+        assertThatThrownBy(() -> service.withStartSlot(() -> {
+            throw new AssertionError("start must not run without a slot");
+        }))
+                .isInstanceOfSatisfying(StartAdmissionService.StartRejectedException.class,
+                        e -> assertThat(e.getDecision().reason()).isEqualTo("concurrency"));
+        assertThat(service.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void disabledAdmissionAdmitsEverything() {
+        ReflectionTestUtils.setField(service, "enabled", false);
+        for (int i = 0; i < 10; i++) {
+            assertThat(service.tryAdmit("c1", "t1").admitted()).isTrue();
+            assertThat(service.tryAcquireSlot().admitted()).isTrue();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.hunt.peoples.profiles.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * SQL аренды без БД: проверяем условия в запросах, порядок параметров
+ * и что освобождение не снимает чужую аренду.
+ */
+class ProfileLeaseServiceTest {
+
+    private JdbcTemplate jdbc;
+    private ProfileCache cache;
+    private ApplicationEventPublisher events;
+    private ProfileLeaseService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = mock(JdbcTemplate.class);
+        cache = mock(ProfileCache.class);
+        events = mock(ApplicationEventPublisher.class);
+        service = new ProfileLeaseService(jdbc, cache, events, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "defaultTtlMs", 60_000L);
+        ReflectionTestUtils.setField(service, "maxTtlMs", 3_600_000L);
+        ReflectionTestUtils.setField(service, "sweepIntervalMs", 60_000L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void acquireIsSingleConditionalUpdate() {
+        when(jdbc.query(anyString(), any(RowMapper.class), any(Object[].class)))
+                .thenReturn(List.of(new ProfileLeaseService.Lease(7L, "alice", Instant.now())));
+        service.init();
+
+        assertThat(service.acquire(7L, "alice", Duration.ofHours(5))).isPresent();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbc).query(sql.capture(), any(RowMapper.class), eq("alice"), eq(3_600_000L), eq(7L), eq("alice"));
+        assertThat(sql.getValue())
+                .contains("locked_by_user_id IS NULL")
+                .doesNotContain("status = 'FREE'")
+                .contains("lease_expires_at < now()")
+                .contains("locked_by_user_id = ?")
+                .contains("RETURNING");
+        verify(cache).invalidate(7L);
+        service.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void acquireRejectedWhenNoRowUpdated() {
+        when(jdbc.query(anyString(), any(RowMapper.class), any(Object[].class))).thenReturn(List.of());
+        service.init();
+
+        assertThat(service.acquire(7L, "bob", null)).isEmpty();
+        verify(jdbc).query(anyString(), any(RowMapper.class), eq("bob"), eq(60_000L), eq(7L), eq("bob"));
+        verifyNoInteractions(events);
+        service.shutdown();
+    }
+
+    @Test
+    void holderIsRequired() {
+        assertThatThrownBy(() -> service.acquire(1L, " ", null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.release(1L, null)).isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void releaseMatchesHolder() {
+        when(jdbc.update(anyString(), any(Object[].class))).thenReturn(1);
+
+        assertThat(service.release(3L, "alice")).isTrue();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbc).update(sql.capture(), eq(3L), eq("alice"));
+        assertThat(sql.getValue()).contains("WHERE id = ? AND locked_by_user_id = ?");
+        verify(events).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void releaseIfHeldByKeepsLeaseTakenByAnotherHolder() {
+        when(jdbc.update(anyString(), any(Object[].class))).thenReturn(0);
+
+        assertThat(service.releaseIfHeldBy(3L, "alice")).isFalse();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbc).update(sql.capture(), eq(3L), eq("alice"));
+        assertThat(sql.getValue()).contains("locked_by_user_id IS NOT DISTINCT FROM ?");
+        verify(cache).invalidate(3L);
+        verifyNoInteractions(events);
+    }
+
+    @Test
+    void releaseIfHeldByAcceptsUnleasedProfile() {
+        when(jdbc.update(anyString(), any(Object[].class))).thenReturn(1);
+
+        assertThat(service.releaseIfHeldBy(3L, null)).isTrue();
+        verify(jdbc).update(anyString(), eq(3L), isNull());
+        verify(events).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void heartbeatOnlyExtendsLiveOwnLease() {
+        service.heartbeat(5L, "alice", Duration.ofSeconds(30));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbc).query(sql.capture(), any(RowMapper.class), eq(30_000L), eq(5L), eq("alice"));
+        assertThat(sql.getValue())
+                .contains("locked_by_user_id = ?")
+                .contains("lease_expires_at >= now()");
+    }
+}
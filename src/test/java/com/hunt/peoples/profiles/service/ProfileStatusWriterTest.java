@@ -0,0 +1,139 @@
+package com.hunt.peoples.profiles.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Write-behind статусов без БД: условие на чужую аренду в UPDATE и то, как флашер
+ * разбирает строки, которые Postgres по этому условию пропустил.
+ */
+class ProfileStatusWriterTest {
+
+    private JdbcTemplate jdbc;
+    private ProfileCache cache;
+    private ApplicationEventPublisher events;
+    private SimpleMeterRegistry meterRegistry;
+    private ProfileStatusWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = mock(JdbcTemplate.class);
+        cache = mock(ProfileCache.class);
+        events = mock(ApplicationEventPublisher.class);
+        meterRegistry = new SimpleMeterRegistry();
+        writer = new ProfileStatusWriter(jdbc, meterRegistry, cache, events, mock(PlatformTransactionManager.class));
+        // фоновый флаш не мешает: пишем только через flushAndWait
+        ReflectionTestUtils.setField(writer, "flushIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(writer, "syncTimeoutMs", 5_000L);
+        writer.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateSkipsRowsHeldByLiveLeaseOfAnotherHolder() throws Exception {
+        when(jdbc.batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{1}});
+
+        writer.submit(ProfileStatusWriter.StatusChange.status(7L, "FREE"));
+        writer.flushAndWait();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<Object>> setter =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        ArgumentCaptor<Collection<Object>> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbc).batchUpdate(sql.capture(), rows.capture(), anyInt(), setter.capture());
+
+        assertThat(sql.getValue())
+                .contains("locked_by_user_id IS NULL")
+                .contains("lease_expires_at < now()")
+                .contains("locked_by_user_id = ?");
+        // аренду writer не пишет — только условие на неё
+        assertThat(sql.getValue().substring(0, sql.getValue().indexOf("WHERE")))
+                .doesNotContain("locked_by_user_id")
+                .doesNotContain("lease_expires_at");
+
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, rows.getValue().iterator().next());
+        verify(ps).setString(1, "FREE");
+        verify(ps).setTimestamp(eq(2), isNull());
+        verify(ps).setTimestamp(eq(3), any(Timestamp.class));
+        verify(ps).setLong(4, 7L);
+        // без держателя: чужую живую аренду условие не пропустит
+        verify(ps).setString(5, null);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void lateFreeDoesNotOverwriteBusyLeaseOfNewHolder() throws Exception {
+        // FREE от остановки поставлен в очередь, а до флаша профиль захватил bob:
+        // условие UPDATE строку не трогает (0 строк), профиль при этом существует
+        when(jdbc.batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{0}});
+        when(jdbc.queryForList(startsWith("SELECT id FROM profiles"), eq(Long.class), any(Object[].class)))
+                .thenReturn(List.of(7L));
+
+        CompletableFuture<Boolean> done = writer.submit(ProfileStatusWriter.StatusChange.status(7L, "FREE"));
+        writer.flushAndWait();
+
+        // ожидающий видит «профиль есть», но события FREE нет — BUSY bob'а не перезаписан
+        assertThat(done.get()).isTrue();
+        verifyNoInteractions(events);
+        verify(cache).invalidate(7L);
+        assertThat(meterRegistry.counter("profile.status.updates", "stage", "skipped_leased").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void missingProfileCompletesWithFalse() throws Exception {
+        when(jdbc.batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{0}});
+        when(jdbc.queryForList(startsWith("SELECT id FROM profiles"), eq(Long.class), any(Object[].class)))
+                .thenReturn(List.of());
+
+        CompletableFuture<Boolean> done = writer.submit(ProfileStatusWriter.StatusChange.status(8L, "BUSY"));
+        writer.flushAndWait();
+
+        assertThat(done.get()).isFalse();
+        verifyNoInteractions(events);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void writtenStatusIsPublished() throws Exception {
+        when(jdbc.batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{1}});
+
+        CompletableFuture<Boolean> done = writer.submit(ProfileStatusWriter.StatusChange.status(9L, "STOPPING"));
+        writer.flushAndWait();
+
+        assertThat(done.get()).isTrue();
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(events).publishEvent(event.capture());
+        assertThat(((ProfileLifecycleEvent) event.getValue()).state()).isEqualTo("STOPPING");
+        verify(jdbc, never()).queryForList(anyString(), eq(Long.class), any(Object[].class));
+    }
+}